@@ -0,0 +1,30 @@
+package practice.bookrentalapp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Redis auto-configuration is excluded application-wide, so the connection is only created
+ * when a feature that needs it is switched on.
+ */
+@Configuration
+@ConditionalOnProperty(name = "security.revocation.store", havingValue = "redis")
+public class RedisConfig {
+
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory(@Value("${spring.data.redis.host:localhost}") String host,
+                                                           @Value("${spring.data.redis.port:6379}") int port) {
+        return new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+    }
+
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(LettuceConnectionFactory redisConnectionFactory) {
+        return new StringRedisTemplate(redisConnectionFactory);
+    }
+
+}
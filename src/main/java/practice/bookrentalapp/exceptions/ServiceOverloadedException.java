@@ -0,0 +1,7 @@
+package practice.bookrentalapp.exceptions;
+
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
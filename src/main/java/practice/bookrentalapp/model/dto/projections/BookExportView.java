@@ -0,0 +1,18 @@
+package practice.bookrentalapp.model.dto.projections;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public interface BookExportView {
+    Long getId();
+    String getTitle();
+    String getPublisher();
+    LocalDate getPublishedDate();
+    String getIsbn();
+    Integer getPageCount();
+    Double getAverageRating();
+    String getLanguage();
+    Integer getTotalCopies();
+    Integer getCopiesLent();
+    LocalDateTime getUpdatedAt();
+}
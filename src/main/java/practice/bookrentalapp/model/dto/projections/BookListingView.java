@@ -0,0 +1,8 @@
+package practice.bookrentalapp.model.dto.projections;
+
+public interface BookListingView {
+    Long getId();
+    String getTitle();
+    String getPublisher();
+    Double getAverageRating();
+}
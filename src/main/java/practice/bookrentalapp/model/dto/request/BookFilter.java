@@ -22,9 +22,14 @@ public class BookFilter {
     @Min(value = 1, message = "Page cannot be empty")
     @Max(value = 40, message = "Maximum 40 items per page allowed")
     private Integer size = 10;
-    @Pattern(regexp = "title|authors|publisher|averageRating|pageCount",
-            message = "orderBy must be one of: title, authors, publisher, averageRating, pageCount")
+    @Pattern(regexp = "title|authors|publisher|averageRating|pageCount|relevance",
+            message = "orderBy must be one of: title, authors, publisher, averageRating, pageCount, relevance")
     private String orderBy = "title";
     @Pattern(regexp = "asc|desc", message = "dir must be either 'asc' or 'desc'")
     private String dir = "asc";
+
+    // Keyset pagination: set seek=true for the first page, then pass back the returned cursor
+    private Boolean seek = false;
+    private String cursor;
+    private Boolean includeTotal = true;
 }
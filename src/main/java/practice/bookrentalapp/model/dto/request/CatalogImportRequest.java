@@ -0,0 +1,17 @@
+package practice.bookrentalapp.model.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+@Data
+public class CatalogImportRequest {
+    // Resolved against catalog.import.dir; paths outside that directory are rejected
+    @NotBlank(message = "file is required")
+    private String file;
+    @Pattern(regexp = "jsonl|csv", message = "format must be either 'jsonl' or 'csv'")
+    private String format = "jsonl";
+    @Min(value = 1, message = "copies must be at least 1")
+    private Integer copies = 3;
+}
@@ -0,0 +1,10 @@
+package practice.bookrentalapp.model.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class RefreshTokenRequest {
+    @NotBlank(message = "Refresh token cannot be empty")
+    private String refreshToken;
+}
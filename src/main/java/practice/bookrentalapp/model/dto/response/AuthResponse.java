@@ -9,5 +9,6 @@ import practice.bookrentalapp.model.dto.entityDtos.UserDto;
 public class AuthResponse {
     private String token;
     private String type;
+    private String refreshToken;
     private UserDto user;
 }
@@ -0,0 +1,18 @@
+package practice.bookrentalapp.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class FacetResponse {
+    private long totalBooks;
+    // Each map is ordered by descending count and truncated to the requested limit
+    private Map<String, Integer> categories;
+    private Map<String, Integer> authors;
+    private Map<String, Integer> languages;
+    private long available;
+    private long unavailable;
+}
@@ -10,6 +10,8 @@ import java.util.List;
 public class GoogleBooksResponse {
     private int totalItems;
     private List<Item> items;
+    // Items dropped by the streaming parser before deserialization
+    private int filteredItems;
 
     @Data
     public static class Item {
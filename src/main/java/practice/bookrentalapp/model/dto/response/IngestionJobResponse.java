@@ -0,0 +1,25 @@
+package practice.bookrentalapp.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import practice.bookrentalapp.model.enums.IngestionStatus;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class IngestionJobResponse {
+    private String id;
+    private String source;
+    private IngestionStatus status;
+    private long pagesFetched;
+    private long pagesFailed;
+    private long read;
+    private long skipped;
+    private long duplicates;
+    private long saved;
+    private long failed;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
@@ -0,0 +1,13 @@
+package practice.bookrentalapp.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SuggestionResponse {
+    private String text;
+    private String type;
+    // Set for title suggestions so clients can link straight to the book
+    private Long bookId;
+}
@@ -14,8 +14,10 @@ import java.time.LocalDateTime;
 @MappedSuperclass
 @EntityListeners(AuditingEntityListener.class)
 public abstract class BaseEntity {
+    // One pooled sequence per entity (book_seq, rental_seq, ...), allocating 50 ids per round trip.
+    // IDENTITY would force an immediate INSERT per entity and disable JDBC batching.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     @CreatedDate
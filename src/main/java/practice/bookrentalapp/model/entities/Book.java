@@ -3,14 +3,23 @@ package practice.bookrentalapp.model.entities;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.Hibernate;
+import practice.bookrentalapp.utils.TextNormalizer;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Entity
 @Getter
 @Setter
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_title_key", columnList = "title_key"),
+        @Index(name = "uk_books_isbn", columnList = "isbn", unique = true),
+        @Index(name = "idx_books_metadata_checked_at", columnList = "metadata_checked_at")
+})
 public class Book extends BaseEntity {
     private String title;
     @ElementCollection
@@ -25,4 +34,47 @@ public class Book extends BaseEntity {
     private Set<String> categories;
     private Integer totalCopies;
     private Integer copiesLent = 0;
+    // Normalized title used for duplicate detection; maintained from title on every write
+    @Column(name = "title_key")
+    private String titleKey;
+    // Normalized author tokens and "|"-delimited normalized categories, so database filters match books the
+    // same way the in-memory search index does
+    @Column(name = "author_key", length = 2000)
+    private String authorKey;
+    @Column(name = "category_key", length = 2000)
+    private String categoryKey;
+    // Last time the metadata refresher compared this book with Google Books, and the ETag it got back
+    @Column(name = "metadata_checked_at")
+    private LocalDateTime metadataCheckedAt;
+    @Column(name = "metadata_etag")
+    private String metadataEtag;
+
+    @PrePersist
+    @PreUpdate
+    public void normalizeKeys() {
+        titleKey = TextNormalizer.normalize(title);
+        // An uninitialized lazy collection cannot have changed, and loading it during a flush is not allowed
+        if (Hibernate.isInitialized(authors)) {
+            authorKey = authors == null ? "" : TextNormalizer.normalize(String.join(" ", authors));
+        }
+        if (Hibernate.isInitialized(categories)) {
+            categoryKey = categoryKey(categories);
+        }
+        if (ISBN != null) {
+            String digits = TextNormalizer.digitsOnly(ISBN);
+            ISBN = digits.isEmpty() ? null : digits;
+        }
+    }
+
+    public static String categoryKey(Collection<String> categories) {
+        if (categories == null || categories.isEmpty()) {
+            return "";
+        }
+        return categories.stream()
+                .map(TextNormalizer::normalize)
+                .filter(key -> !key.isEmpty())
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining("|", "|", "|"));
+    }
 }
@@ -0,0 +1,25 @@
+package practice.bookrentalapp.model.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_token_hash", columnList = "token_hash", unique = true),
+        @Index(name = "idx_refresh_tokens_user_id", columnList = "user_id")
+})
+public class RefreshToken extends BaseEntity {
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id")
+    private User user;
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    private boolean revoked = false;
+}
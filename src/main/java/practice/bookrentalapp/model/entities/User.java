@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -33,6 +34,10 @@ public class User extends BaseEntity implements UserDetails {
     private String password;
     @Enumerated(EnumType.STRING)
     private Role role;
+    // Existing rows get 0 when the column is added; tokens carry this value and must match it
+    @Column(name = "security_version", nullable = false)
+    @ColumnDefault("0")
+    private Integer securityVersion = 0;
 
     @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     private List<Rental> rentals;
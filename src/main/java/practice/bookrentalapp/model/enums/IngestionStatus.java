@@ -0,0 +1,7 @@
+package practice.bookrentalapp.model.enums;
+
+public enum IngestionStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,41 @@
+package practice.bookrentalapp.model.events;
+
+import practice.bookrentalapp.model.entities.Book;
+import practice.bookrentalapp.search.BookSnapshot;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published whenever books are added, changed or removed, or when rentals change how many copies are lent.
+ * In-memory catalog structures listen for it after the surrounding transaction commits.
+ */
+public record CatalogChangedEvent(List<BookSnapshot> upserted, List<Long> removed, List<InventoryChange> inventory) {
+
+    /**
+     * New copy counts of a book whose catalog fields are unchanged, so listeners can skip re-indexing its text.
+     */
+    public record InventoryChange(Long bookId, int totalCopies, int copiesLent) {
+        public static InventoryChange of(Book book) {
+            return new InventoryChange(book.getId(),
+                    book.getTotalCopies() != null ? book.getTotalCopies() : 0,
+                    book.getCopiesLent() != null ? book.getCopiesLent() : 0);
+        }
+    }
+
+    public static CatalogChangedEvent upserted(List<BookSnapshot> books) {
+        return new CatalogChangedEvent(List.copyOf(books), List.of(), List.of());
+    }
+
+    public static CatalogChangedEvent removed(Long bookId) {
+        return new CatalogChangedEvent(List.of(), List.of(bookId), List.of());
+    }
+
+    public static CatalogChangedEvent inventoryChanged(Collection<Book> books) {
+        return inventory(books.stream().map(InventoryChange::of).toList());
+    }
+
+    public static CatalogChangedEvent inventory(List<InventoryChange> changes) {
+        return new CatalogChangedEvent(List.of(), List.of(), List.copyOf(changes));
+    }
+}
@@ -0,0 +1,9 @@
+package practice.bookrentalapp.model.events;
+
+import java.util.List;
+
+/**
+ * Published when a user rents a set of books, after stock has been reserved.
+ */
+public record RentalCreatedEvent(Long userId, List<Long> bookIds) {
+}
@@ -1,38 +1,96 @@
 package practice.bookrentalapp.repositories;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import practice.bookrentalapp.model.dto.projections.BookExportView;
+import practice.bookrentalapp.model.dto.projections.BookListingView;
 import practice.bookrentalapp.model.entities.Book;
 
-import java.util.List;
-import java.util.Set;
+import java.time.LocalDateTime;
+import java.util.*;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
-    @Query("SELECT DISTINCT b.title FROM Book b WHERE b.title IN :titles OR b.ISBN IN :isbns")
-    Set<String> findExistingTitlesByTitleOrIsbn(@Param("titles") Set<String> titles, @Param("isbns") Set<String> isbns);
-
-    @Query("SELECT DISTINCT b FROM Book b " +
-            "LEFT JOIN b.authors a " +
-            "LEFT JOIN b.categories c " +
-            "WHERE (:author IS NULL OR LOWER(a) = LOWER(:author)) " +
-            "AND (:categories IS NULL OR c IN :categories) " +
-            "AND (:title IS NULL OR LOWER(b.title) = LOWER(:title)) " +
-            "AND (:isbn IS NULL OR b.ISBN = :isbn) " +
-            "AND (:available IS NULL OR b.copies > 0) " +
-            "AND (:minRating IS NULL OR b.averageRating >= :minRating)"
-    )
-    Page<Book> fetchByFilters(
-      @Param("title") String title,
-      @Param("author") String author,
-      @Param("isbn") String isbn,
-      @Param("available") Boolean available,
-      @Param("categories") List<String> categories,
-      @Param("minRating") Double minRating,
-      Pageable pageable
-    );
+    @Query("SELECT b.id, b.titleKey FROM Book b WHERE b.titleKey IN :titleKeys")
+    List<Object[]> findIdsByTitleKeys(@Param("titleKeys") Collection<String> titleKeys);
+
+    @Query("SELECT b.id, b.ISBN FROM Book b WHERE b.ISBN IN :isbns")
+    List<Object[]> findIdsByIsbns(@Param("isbns") Collection<String> isbns);
+
+    @Query("SELECT b FROM Book b WHERE b.titleKey IS NULL OR b.authorKey IS NULL OR b.categoryKey IS NULL ORDER BY b.id")
+    List<Book> findWithoutSearchKeys(Pageable pageable);
+
+    /**
+     * Books with an ISBN not checked since {@code checkedBefore}: most rented first, then least recently
+     * checked (or updated, if never checked). Rows are {@code [id, isbn, metadataEtag, rentalCount]}.
+     */
+    @Query("SELECT b.id, b.ISBN, b.metadataEtag, " +
+            "(SELECT COUNT(r) FROM Rental r JOIN r.books rb WHERE rb = b) AS rentalCount " +
+            "FROM Book b " +
+            "WHERE b.ISBN IS NOT NULL AND (b.metadataCheckedAt IS NULL OR b.metadataCheckedAt < :checkedBefore) " +
+            "ORDER BY rentalCount DESC, COALESCE(b.metadataCheckedAt, b.updatedAt), b.id")
+    List<Object[]> findMetadataRefreshCandidates(@Param("checkedBefore") LocalDateTime checkedBefore, Pageable pageable);
+
+    /**
+     * Lends one copy of each given book that still has one available, in a single statement. Returns how many
+     * books were reserved; callers compare it with the number of ids and roll back on a shortfall.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Book b SET b.copiesLent = b.copiesLent + 1, b.updatedAt = :now " +
+            "WHERE b.id IN :ids AND b.copiesLent < b.totalCopies")
+    int reserveCopies(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Book b SET b.copiesLent = b.copiesLent - 1, b.updatedAt = :now " +
+            "WHERE b.id IN :ids AND b.copiesLent > 0")
+    int releaseCopies(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Query("SELECT b.id, b.totalCopies, b.copiesLent FROM Book b WHERE b.id IN :ids")
+    List<Object[]> findInventoryByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT b.id AS id, b.title AS title, b.publisher AS publisher, b.averageRating AS averageRating " +
+            "FROM Book b WHERE b.id IN :ids")
+    List<BookListingView> findListingViewsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT b FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<Book> findBatchAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Scalar columns only, so a chunk leaves nothing managed in a persistence context the export may share
+    @Query("SELECT b.id AS id, b.title AS title, b.publisher AS publisher, b.publishedDate AS publishedDate, " +
+            "b.ISBN AS isbn, b.pageCount AS pageCount, b.averageRating AS averageRating, b.language AS language, " +
+            "b.totalCopies AS totalCopies, b.copiesLent AS copiesLent, b.updatedAt AS updatedAt " +
+            "FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<BookExportView> findExportViewsAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT b.id, a FROM Book b JOIN b.authors a WHERE b.id IN :ids")
+    List<Object[]> findAuthorsByBookIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT b.id, c FROM Book b JOIN b.categories c WHERE b.id IN :ids")
+    List<Object[]> findCategoriesByBookIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Loads the authors of all given books in a single query, grouped by book id.
+     */
+    default Map<Long, List<String>> loadAuthors(Collection<Long> ids) {
+        return groupByBookId(ids.isEmpty() ? List.of() : findAuthorsByBookIds(ids));
+    }
+
+    /**
+     * Loads the categories of all given books in a single query, grouped by book id.
+     */
+    default Map<Long, List<String>> loadCategories(Collection<Long> ids) {
+        return groupByBookId(ids.isEmpty() ? List.of() : findCategoriesByBookIds(ids));
+    }
+
+    private static Map<Long, List<String>> groupByBookId(List<Object[]> rows) {
+        Map<Long, List<String>> grouped = new HashMap<>();
+        for (Object[] row : rows) {
+            grouped.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return grouped;
+    }
 }
@@ -1,12 +1,22 @@
 package practice.bookrentalapp.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import practice.bookrentalapp.model.entities.Rental;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface RentalRepository extends JpaRepository<Rental, Long> {
     List<Rental> findByUserId(Long userId);
+
+    @Query("SELECT r.id FROM Rental r WHERE r.id > :afterId ORDER BY r.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT r.user.id, b.id FROM Rental r JOIN r.books b WHERE r.id IN :ids")
+    List<Object[]> findUserBookPairsByRentalIds(@Param("ids") Collection<Long> ids);
 }
@@ -3,13 +3,28 @@ package practice.bookrentalapp.repositories;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import practice.bookrentalapp.model.entities.User;
 
+import java.util.Optional;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     User findByUsernameOrEmail(String username, String email);
     boolean existsByUsername(String username);
 
     boolean existsByEmail(@NotBlank @Email String email);
+
+    /**
+     * Empty only if the user does not exist; a version never written yet counts as 0.
+     */
+    @Query("SELECT COALESCE(u.securityVersion, 0) FROM User u WHERE u.id = :id")
+    Optional<Integer> findSecurityVersionById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE User u SET u.securityVersion = 0 WHERE u.securityVersion IS NULL")
+    int backfillSecurityVersions();
 }
@@ -2,24 +2,35 @@ package practice.bookrentalapp.rest.controller;
 
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.BadRequestException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import practice.bookrentalapp.model.dto.entityDtos.BookDto;
 import practice.bookrentalapp.model.dto.entityDtos.RentalDto;
 import practice.bookrentalapp.model.dto.entityDtos.UserDto;
 import practice.bookrentalapp.model.dto.request.BookSearchRequest;
+import practice.bookrentalapp.model.dto.request.CatalogImportRequest;
 import practice.bookrentalapp.model.dto.request.RentalFilter;
 import practice.bookrentalapp.model.dto.request.UpdateBookRequest;
 import practice.bookrentalapp.model.dto.request.UserFilter;
+import practice.bookrentalapp.model.dto.response.IngestionJobResponse;
+import practice.bookrentalapp.model.enums.ExportFormat;
 import practice.bookrentalapp.service.BookService;
+import practice.bookrentalapp.service.CatalogExportService;
+import practice.bookrentalapp.service.CatalogImportService;
 import practice.bookrentalapp.service.GoogleBooksApiService;
+import practice.bookrentalapp.service.IngestionJobRegistry;
 import practice.bookrentalapp.service.RentalService;
 import practice.bookrentalapp.service.UserService;
 
-import java.util.List;
+import java.time.LocalDate;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -29,19 +40,52 @@ public class AdminController {
     private final BookService bookService;
     private final UserService userService;
     private final RentalService rentalService;
+    private final CatalogExportService catalogExportService;
+    private final CatalogImportService catalogImportService;
+    private final IngestionJobRegistry ingestionJobRegistry;
 
     @Autowired
-    public AdminController(GoogleBooksApiService googleBooksApiService, BookService bookService, UserService userService, RentalService rentalService) {
+    public AdminController(GoogleBooksApiService googleBooksApiService, BookService bookService, UserService userService,
+                           RentalService rentalService, CatalogExportService catalogExportService,
+                           CatalogImportService catalogImportService, IngestionJobRegistry ingestionJobRegistry) {
         this.googleBooksApiService = googleBooksApiService;
         this.bookService = bookService;
         this.userService = userService;
         this.rentalService = rentalService;
+        this.catalogExportService = catalogExportService;
+        this.catalogImportService = catalogImportService;
+        this.ingestionJobRegistry = ingestionJobRegistry;
     }
 
     @PostMapping("/books")
-    public ResponseEntity<List<Long>> addBookByAuthorName(@Valid @RequestBody BookSearchRequest bookSearchRequest) {
-        List<Long> savedBookIds = googleBooksApiService.fetchAndSaveBooks(bookSearchRequest);
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedBookIds);
+    public ResponseEntity<IngestionJobResponse> addBookByAuthorName(@Valid @RequestBody BookSearchRequest bookSearchRequest) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(googleBooksApiService.startIngestion(bookSearchRequest).toResponse());
+    }
+
+    @PostMapping("/books/import")
+    public ResponseEntity<IngestionJobResponse> importBooks(@Valid @RequestBody CatalogImportRequest importRequest) throws BadRequestException {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(catalogImportService.startImport(importRequest).toResponse());
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<IngestionJobResponse> getIngestionJob(@PathVariable String jobId) throws BadRequestException {
+        return ResponseEntity.ok(ingestionJobRegistry.get(jobId).toResponse());
+    }
+
+    @GetMapping("/books/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                                             @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) throws BadRequestException {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("format must be either 'ndjson' or 'csv'");
+        }
+        String fileName = "catalog-" + LocalDate.now() + "." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(outputStream -> catalogExportService.export(outputStream, exportFormat, gzip));
     }
 
     @PatchMapping("/books/{id}")
@@ -4,12 +4,11 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.apache.coyote.BadRequestException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 import practice.bookrentalapp.model.dto.request.LoginRequest;
+import practice.bookrentalapp.model.dto.request.RefreshTokenRequest;
 import practice.bookrentalapp.model.dto.request.RegisterRequest;
 import practice.bookrentalapp.model.dto.response.AuthResponse;
 import practice.bookrentalapp.service.AuthService;
@@ -30,4 +29,15 @@ public class AuthController {
         return ResponseEntity.ok(authService.login(request));
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshTokenRequest request) throws BadRequestException {
+        return ResponseEntity.ok(authService.refresh(request));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) throws BadRequestException {
+        authService.logout(authorization);
+        return ResponseEntity.noContent().build();
+    }
+
 }
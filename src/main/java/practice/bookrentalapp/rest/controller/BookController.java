@@ -2,14 +2,20 @@ package practice.bookrentalapp.rest.controller;
 
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.BadRequestException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import practice.bookrentalapp.model.dto.entityDtos.BookDto;
 import practice.bookrentalapp.model.dto.request.BookFilter;
+import practice.bookrentalapp.model.dto.response.FacetResponse;
 import practice.bookrentalapp.model.dto.response.PageBookResponse;
+import practice.bookrentalapp.model.dto.response.SuggestionResponse;
 import practice.bookrentalapp.service.BookService;
+import practice.bookrentalapp.service.CatalogResponseCache;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/books")
@@ -23,13 +29,38 @@ public class BookController {
     }
 
     @GetMapping
-    public ResponseEntity<Page<PageBookResponse>> getBooks(@Valid BookFilter searchParams) {
-        Page<PageBookResponse> books = bookService.getBooks(searchParams);
-        return ResponseEntity.ok(books);
+    public ResponseEntity<?> getBooks(@Valid BookFilter searchParams, WebRequest webRequest) throws BadRequestException {
+        CatalogResponseCache.Entry<?> books = bookService.getBookListing(searchParams);
+        if (webRequest.checkNotModified(books.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok(books.body());
+    }
+
+    @GetMapping("facets")
+    public ResponseEntity<FacetResponse> getFacets(@Valid BookFilter searchParams,
+                                                   @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(bookService.getFacets(searchParams, Math.max(1, Math.min(limit, 100))));
+    }
+
+    @GetMapping("suggest")
+    public ResponseEntity<List<SuggestionResponse>> suggest(@RequestParam("q") String query,
+                                                            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(bookService.suggest(query, Math.max(1, Math.min(limit, 20))));
+    }
+
+    @GetMapping("{id}/similar")
+    public ResponseEntity<List<PageBookResponse>> getSimilarBooks(@PathVariable("id") Long id,
+                                                                  @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(bookService.getSimilarBooks(id, Math.max(1, Math.min(limit, 50))));
     }
 
     @GetMapping("{id}")
-    public ResponseEntity<BookDto> getBookById(@PathVariable("id") Long id) {
-        return ResponseEntity.ok(bookService.getBookById(id));
+    public ResponseEntity<BookDto> getBookById(@PathVariable("id") Long id, WebRequest webRequest) {
+        CatalogResponseCache.Entry<BookDto> book = bookService.getCachedBookById(id);
+        if (webRequest.checkNotModified(book.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok(book.body());
     }
 }
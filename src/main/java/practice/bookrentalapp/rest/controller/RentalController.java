@@ -9,7 +9,7 @@ import practice.bookrentalapp.exceptions.UserNotAuthenticatedException;
 import practice.bookrentalapp.model.dto.entityDtos.RentalDto;
 import practice.bookrentalapp.model.dto.request.CreateRentalRequest;
 import practice.bookrentalapp.model.dto.request.RentalFilter;
-import practice.bookrentalapp.model.entities.User;
+import practice.bookrentalapp.security.AuthenticatedUser;
 import practice.bookrentalapp.service.RentalService;
 
 import static practice.bookrentalapp.utils.LoginChecker.isAuthenticated;
@@ -27,43 +27,43 @@ public class RentalController {
 
     @GetMapping
     public ResponseEntity<Page<RentalDto>> getRentals(@Valid RentalFilter rentalFilter) {
-        User loggedInUser = isAuthenticated();
+        AuthenticatedUser loggedInUser = isAuthenticated();
         if (loggedInUser == null) {
             throw new UserNotAuthenticatedException("User is not logged in");
         }
 
-        Page<RentalDto> rentals = rentalService.getRentalsForUser(loggedInUser, rentalFilter);
+        Page<RentalDto> rentals = rentalService.getRentalsForUser(loggedInUser.getId(), rentalFilter);
         return ResponseEntity.ok(rentals);
     }
 
     @GetMapping("{id}")
     public ResponseEntity<RentalDto> getRental(@PathVariable Long id) {
-        User loggedInUser = isAuthenticated();
+        AuthenticatedUser loggedInUser = isAuthenticated();
         if (loggedInUser == null) {
             throw new UserNotAuthenticatedException("User is not logged in");
         }
 
-        RentalDto rental = rentalService.getRentalById(id, loggedInUser);
+        RentalDto rental = rentalService.getRentalById(id, loggedInUser.getId());
         return ResponseEntity.ok(rental);
     }
 
     @PostMapping
     public ResponseEntity<RentalDto> createRental(@Valid @RequestBody CreateRentalRequest createRentalRequest) {
-        User loggedInUser = isAuthenticated();
+        AuthenticatedUser loggedInUser = isAuthenticated();
         if (loggedInUser == null) {
             throw new UserNotAuthenticatedException("User is not logged in");
         }
-        RentalDto rental = rentalService.createRental(createRentalRequest, loggedInUser);
+        RentalDto rental = rentalService.createRental(createRentalRequest, loggedInUser.getId());
         return ResponseEntity.ok(rental);
     }
 
     @PatchMapping("/{id}/return")
     public ResponseEntity<String> closeRental(@PathVariable Long id) {
-        User loggedInUser = isAuthenticated();
+        AuthenticatedUser loggedInUser = isAuthenticated();
         if (loggedInUser == null) {
             throw new UserNotAuthenticatedException("User is not logged in");
         }
-        rentalService.closeRental(id, loggedInUser);
+        rentalService.closeRental(id, loggedInUser.getId());
         return ResponseEntity.ok("Rental has been closed");
     }
 }
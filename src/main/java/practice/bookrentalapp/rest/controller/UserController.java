@@ -9,7 +9,7 @@ import practice.bookrentalapp.exceptions.UserNotAuthenticatedException;
 import practice.bookrentalapp.model.dto.entityDtos.UserDto;
 import practice.bookrentalapp.model.dto.request.UpdateUserProfileRequest;
 import practice.bookrentalapp.model.dto.response.UpdateUserProfileResponse;
-import practice.bookrentalapp.model.entities.User;
+import practice.bookrentalapp.security.AuthenticatedUser;
 import practice.bookrentalapp.service.UserService;
 
 import static practice.bookrentalapp.utils.LoginChecker.isAuthenticated;
@@ -22,7 +22,7 @@ public class UserController {
 
     @GetMapping("/profile")
     public ResponseEntity<UserDto> getCurrentUserProfile() {
-        User loggedInUser = isAuthenticated();
+        AuthenticatedUser loggedInUser = isAuthenticated();
         if (loggedInUser == null) {
             throw new UserNotAuthenticatedException("User is not authenticated");
         }
@@ -31,7 +31,7 @@ public class UserController {
 
     @PatchMapping("/profile")
     public ResponseEntity<UpdateUserProfileResponse> updateUserProfile(@Valid @RequestBody UpdateUserProfileRequest updateRequest) {
-        User loggedInUser = isAuthenticated();
+        AuthenticatedUser loggedInUser = isAuthenticated();
         if (loggedInUser == null) {
             throw new UserNotAuthenticatedException("User is not authenticated");
         }
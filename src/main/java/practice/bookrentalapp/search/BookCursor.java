@@ -0,0 +1,65 @@
+package practice.bookrentalapp.search;
+
+import org.apache.coyote.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Position in a keyset-paginated book listing: the sort key and id of the last row returned.
+ * Encoded as an opaque URL-safe string handed to clients as a continuation token.
+ */
+public record BookCursor(String orderBy, String dir, String value, long id) {
+    public static final Set<String> SORT_KEYS = Set.of("title", "publisher", "averageRating", "pageCount");
+    private static final char SEPARATOR = '\u001f';
+
+    public boolean ascending() {
+        return !"desc".equalsIgnoreCase(dir);
+    }
+
+    public String encode() {
+        String raw = orderBy + SEPARATOR + dir + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookCursor decode(String token) throws BadRequestException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(String.valueOf(SEPARATOR), 4);
+            if (parts.length != 4 || !SORT_KEYS.contains(parts[0])) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new BookCursor(parts[0], parts[1], parts[3], Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Sort key of a book for keyset ordering. Text keys are lower-cased like the database query's LOWER(), so both
+     * paths order titles and publishers the same way. Missing values sort as an empty string or -1, matching the
+     * COALESCE defaults used by the database query.
+     */
+    public static Comparable<?> sortKey(BookSnapshot book, String orderBy) {
+        return switch (orderBy) {
+            case "publisher" -> foldCase(book.publisher());
+            case "averageRating" -> book.averageRating() != null ? book.averageRating() : -1.0;
+            case "pageCount" -> book.pageCount() != null ? book.pageCount() : -1;
+            default -> foldCase(book.title());
+        };
+    }
+
+    public static String foldCase(String text) {
+        return text != null ? text.toLowerCase(Locale.ROOT) : "";
+    }
+
+    public Comparable<?> typedValue() {
+        return switch (orderBy) {
+            case "averageRating" -> Double.valueOf(value);
+            case "pageCount" -> Integer.valueOf(value);
+            default -> foldCase(value);
+        };
+    }
+}
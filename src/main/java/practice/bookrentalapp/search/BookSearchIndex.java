@@ -0,0 +1,444 @@
+package practice.bookrentalapp.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import practice.bookrentalapp.model.dto.request.BookFilter;
+import practice.bookrentalapp.model.dto.response.FacetResponse;
+import practice.bookrentalapp.utils.TextNormalizer;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * In-memory inverted index over the catalog. Title and author tokens, categories and ISBNs map to the ids of
+ * the books containing them, so filtered listings are answered by intersecting posting sets instead of
+ * scanning the element-collection joins in the database.
+ */
+@Component
+@Slf4j
+public class BookSearchIndex {
+    // Text sorts compare lower-cased values, like LOWER() in the database fallback and the keyset cursor
+    private static final Comparator<String> TEXT_ORDER = Comparator.comparing(BookCursor::foldCase);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, BookSnapshot> books = new HashMap<>();
+    private final Map<String, Set<Long>> titleTokens = new HashMap<>();
+    private final Map<String, Set<Long>> authorTokens = new HashMap<>();
+    private final Map<String, Set<Long>> categories = new HashMap<>();
+    private final Map<String, Set<Long>> isbns = new HashMap<>();
+    // Facet counters kept in step with index()/unindex(), keyed by the values as stored on the book
+    private final Map<String, Integer> categoryCounts = new HashMap<>();
+    private final Map<String, Integer> authorCounts = new HashMap<>();
+    private final Map<String, Integer> languageCounts = new HashMap<>();
+    // Bit i is set while book i has a copy on the shelf; ids are generated keys well inside int range
+    private final BitSet availableIds = new BitSet();
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        ready = true;
+        log.info("Book search index ready with {} books", size());
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            books.clear();
+            titleTokens.clear();
+            authorTokens.clear();
+            categories.clear();
+            isbns.clear();
+            categoryCounts.clear();
+            authorCounts.clear();
+            languageCounts.clear();
+            availableIds.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsertAll(Collection<BookSnapshot> snapshots) {
+        lock.writeLock().lock();
+        try {
+            for (BookSnapshot snapshot : snapshots) {
+                BookSnapshot previous = books.put(snapshot.id(), snapshot);
+                if (previous != null) {
+                    unindex(previous);
+                }
+                index(snapshot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies new copy counts without touching the text postings; only the snapshot and the availability bit change.
+     */
+    public void updateInventory(Long bookId, int totalCopies, int copiesLent) {
+        lock.writeLock().lock();
+        try {
+            BookSnapshot previous = books.get(bookId);
+            if (previous != null) {
+                BookSnapshot updated = previous.withInventory(totalCopies, copiesLent);
+                books.put(bookId, updated);
+                availableIds.set(bit(bookId), updated.available());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(Collection<Long> bookIds) {
+        lock.writeLock().lock();
+        try {
+            for (Long bookId : bookIds) {
+                BookSnapshot previous = books.remove(bookId);
+                if (previous != null) {
+                    unindex(previous);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<BookSnapshot> get(Long bookId) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(books.get(bookId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Page<BookSnapshot> search(BookFilter filter) {
+        List<String> titleQuery = TextNormalizer.tokenize(filter.getTitle());
+        List<String> authorQuery = TextNormalizer.tokenize(filter.getAuthor());
+        PageRequest pageRequest = PageRequest.of(filter.getPage(), filter.getSize());
+
+        lock.readLock().lock();
+        try {
+            List<BookSnapshot> matches = matching(filter, titleQuery, authorQuery);
+            Comparator<BookSnapshot> order = comparator(filter, titleQuery, authorQuery);
+            int limit = (int) Math.min((long) pageRequest.getOffset() + pageRequest.getPageSize(), matches.size());
+            List<BookSnapshot> top = topK(matches, order, limit);
+            List<BookSnapshot> content = pageRequest.getOffset() >= top.size()
+                    ? List.of()
+                    : top.subList((int) pageRequest.getOffset(), top.size());
+            return new PageImpl<>(content, pageRequest, matches.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keyset variant of {@link #search}: returns up to {@code limit} matches ordered by the cursor's sort key
+     * and id, starting strictly after {@code after} (or from the beginning when it is {@code null}).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SeekResult seek(BookFilter filter, String orderBy, boolean ascending, BookCursor after, int limit) {
+        List<String> titleQuery = TextNormalizer.tokenize(filter.getTitle());
+        List<String> authorQuery = TextNormalizer.tokenize(filter.getAuthor());
+        Comparator<BookSnapshot> order = (left, right) -> {
+            int result = ((Comparable) BookCursor.sortKey(left, orderBy)).compareTo(BookCursor.sortKey(right, orderBy));
+            if (result == 0) {
+                result = Long.compare(left.id(), right.id());
+            }
+            return ascending ? result : -result;
+        };
+
+        lock.readLock().lock();
+        try {
+            List<BookSnapshot> matches = matching(filter, titleQuery, authorQuery);
+            List<BookSnapshot> remaining = matches;
+            if (after != null) {
+                Comparable cursorValue = after.typedValue();
+                remaining = matches.stream()
+                        .filter(book -> {
+                            int result = ((Comparable) BookCursor.sortKey(book, orderBy)).compareTo(cursorValue);
+                            if (result == 0) {
+                                result = Long.compare(book.id(), after.id());
+                            }
+                            return (ascending ? result : -result) > 0;
+                        })
+                        .toList();
+            }
+            return new SeekResult(topK(remaining, order, limit), matches.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Facet counts for the books matching {@code filter}. Without any criteria they come straight from the
+     * counters; otherwise they are tallied over the matching snapshots.
+     */
+    public FacetResponse facets(BookFilter filter, int limit) {
+        List<String> titleQuery = TextNormalizer.tokenize(filter.getTitle());
+        List<String> authorQuery = TextNormalizer.tokenize(filter.getAuthor());
+
+        lock.readLock().lock();
+        try {
+            if (!hasCriteria(filter)) {
+                return new FacetResponse(books.size(),
+                        topCounts(categoryCounts, limit),
+                        topCounts(authorCounts, limit),
+                        topCounts(languageCounts, limit),
+                        availableIds.cardinality(),
+                        books.size() - availableIds.cardinality());
+            }
+            Map<String, Integer> matchedCategories = new HashMap<>();
+            Map<String, Integer> matchedAuthors = new HashMap<>();
+            Map<String, Integer> matchedLanguages = new HashMap<>();
+            int available = 0;
+            List<BookSnapshot> matches = matching(filter, titleQuery, authorQuery);
+            for (BookSnapshot book : matches) {
+                count(matchedCategories, book.categories(), 1);
+                count(matchedAuthors, book.authors(), 1);
+                if (book.language() != null) {
+                    matchedLanguages.merge(book.language(), 1, Integer::sum);
+                }
+                if (availableIds.get(bit(book.id()))) {
+                    available++;
+                }
+            }
+            return new FacetResponse(matches.size(),
+                    topCounts(matchedCategories, limit),
+                    topCounts(matchedAuthors, limit),
+                    topCounts(matchedLanguages, limit),
+                    available,
+                    matches.size() - available);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public record SeekResult(List<BookSnapshot> rows, long total) {
+    }
+
+    // Callers must hold the read lock
+    private List<BookSnapshot> matching(BookFilter filter, List<String> titleQuery, List<String> authorQuery) {
+        Set<Long> candidates = null;
+        for (String token : titleQuery) {
+            candidates = intersect(candidates, titleTokens.get(token));
+        }
+        for (String token : authorQuery) {
+            candidates = intersect(candidates, authorTokens.get(token));
+        }
+        if (filter.getCategories() != null && !filter.getCategories().isEmpty()) {
+            Set<Long> inAnyCategory = new HashSet<>();
+            for (String category : filter.getCategories()) {
+                inAnyCategory.addAll(categories.getOrDefault(TextNormalizer.normalize(category), Set.of()));
+            }
+            candidates = intersect(candidates, inAnyCategory);
+        }
+        if (filter.getIsbn() != null) {
+            candidates = intersect(candidates, isbns.get(TextNormalizer.digitsOnly(filter.getIsbn())));
+        }
+
+        Collection<BookSnapshot> scope;
+        if (Boolean.TRUE.equals(filter.getAvailable())) {
+            // Without other postings, walk the set bits instead of every book
+            scope = candidates == null
+                    ? availableIds.stream().mapToObj(id -> books.get((long) id)).toList()
+                    : candidates.stream().filter(id -> availableIds.get(bit(id))).map(books::get).toList();
+        } else {
+            scope = candidates == null
+                    ? books.values()
+                    : candidates.stream().map(books::get).toList();
+        }
+        List<BookSnapshot> matches = new ArrayList<>();
+        for (BookSnapshot book : scope) {
+            if (filter.getRatingGreaterThan() != null
+                    && (book.averageRating() == null || book.averageRating() < filter.getRatingGreaterThan())) {
+                continue;
+            }
+            matches.add(book);
+        }
+        return matches;
+    }
+
+    private static boolean hasCriteria(BookFilter filter) {
+        return filter.getTitle() != null
+                || filter.getAuthor() != null
+                || filter.getIsbn() != null
+                || Boolean.TRUE.equals(filter.getAvailable())
+                || (filter.getCategories() != null && !filter.getCategories().isEmpty())
+                || filter.getRatingGreaterThan() != null;
+    }
+
+    private static Map<String, Integer> topCounts(Map<String, Integer> counts, int limit) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        topK(new ArrayList<>(counts.entrySet()),
+                Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()),
+                limit)
+                .forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+        return result;
+    }
+
+    private static void count(Map<String, Integer> counts, Collection<String> values, int delta) {
+        // A book listing the same value twice still counts once
+        for (String value : new HashSet<>(values)) {
+            counts.merge(value, delta, (current, change) -> current + change == 0 ? null : current + change);
+        }
+    }
+
+    private Comparator<BookSnapshot> comparator(BookFilter filter, List<String> titleQuery, List<String> authorQuery) {
+        Comparator<BookSnapshot> byField = switch (filter.getOrderBy()) {
+            case "relevance" -> {
+                Map<Long, Double> scores = new HashMap<>();
+                Function<BookSnapshot, Double> score = book ->
+                        scores.computeIfAbsent(book.id(), id -> relevance(book, titleQuery, authorQuery));
+                // Highest score first regardless of dir, which only applies to field sorts
+                yield Comparator.comparing(score).reversed();
+            }
+            case "publisher" -> nullsLast(BookSnapshot::publisher, TEXT_ORDER, filter);
+            case "averageRating" -> nullsLast(BookSnapshot::averageRating, Comparator.<Double>naturalOrder(), filter);
+            case "pageCount" -> nullsLast(BookSnapshot::pageCount, Comparator.<Integer>naturalOrder(), filter);
+            case "authors" -> nullsLast(
+                    book -> book.authors().stream().min(TEXT_ORDER).orElse(null), TEXT_ORDER, filter);
+            default -> nullsLast(BookSnapshot::title, TEXT_ORDER, filter);
+        };
+        return byField.thenComparing(BookSnapshot::id);
+    }
+
+    private static <T> Comparator<BookSnapshot> nullsLast(Function<BookSnapshot, T> key, Comparator<T> order, BookFilter filter) {
+        Comparator<T> directed = "desc".equalsIgnoreCase(filter.getDir()) ? order.reversed() : order;
+        return Comparator.comparing(key, Comparator.nullsLast(directed));
+    }
+
+    private static double relevance(BookSnapshot book, List<String> titleQuery, List<String> authorQuery) {
+        double score = 0;
+        if (!titleQuery.isEmpty()) {
+            List<String> tokens = TextNormalizer.tokenize(book.title());
+            if (String.join(" ", tokens).equals(String.join(" ", titleQuery))) {
+                score += 10;
+            } else if (!tokens.isEmpty() && tokens.get(0).equals(titleQuery.get(0))) {
+                score += 2;
+            }
+            // Shorter titles covering all query tokens are closer matches
+            score += (double) titleQuery.size() / Math.max(tokens.size(), 1);
+        }
+        if (!authorQuery.isEmpty()) {
+            String query = String.join(" ", authorQuery);
+            boolean exact = book.authors().stream().anyMatch(author -> TextNormalizer.normalize(author).equals(query));
+            score += exact ? 5 : 1;
+        }
+        if (book.averageRating() != null) {
+            score += book.averageRating() / 100;
+        }
+        return score;
+    }
+
+    /**
+     * Returns the first {@code k} items in order, using a bounded heap when only a small prefix is needed.
+     */
+    private static <T> List<T> topK(List<T> items, Comparator<T> order, int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        if (k >= items.size() / 4) {
+            List<T> sorted = new ArrayList<>(items);
+            sorted.sort(order);
+            return sorted.subList(0, Math.min(k, sorted.size()));
+        }
+        PriorityQueue<T> heap = new PriorityQueue<>(k + 1, order.reversed());
+        for (T item : items) {
+            heap.offer(item);
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+
+    private static Set<Long> intersect(Set<Long> current, Set<Long> postings) {
+        if (postings == null || postings.isEmpty()) {
+            return new HashSet<>();
+        }
+        if (current == null) {
+            return new HashSet<>(postings);
+        }
+        current.retainAll(postings);
+        return current;
+    }
+
+    private void index(BookSnapshot book) {
+        for (String token : TextNormalizer.tokenize(book.title())) {
+            titleTokens.computeIfAbsent(token, key -> new HashSet<>()).add(book.id());
+        }
+        for (String author : book.authors()) {
+            for (String token : TextNormalizer.tokenize(author)) {
+                authorTokens.computeIfAbsent(token, key -> new HashSet<>()).add(book.id());
+            }
+        }
+        for (String category : book.categories()) {
+            categories.computeIfAbsent(TextNormalizer.normalize(category), key -> new HashSet<>()).add(book.id());
+        }
+        if (book.isbn() != null) {
+            isbns.computeIfAbsent(TextNormalizer.digitsOnly(book.isbn()), key -> new HashSet<>()).add(book.id());
+        }
+        availableIds.set(bit(book.id()), book.available());
+        updateFacets(book, 1);
+    }
+
+    private void unindex(BookSnapshot book) {
+        for (String token : TextNormalizer.tokenize(book.title())) {
+            removePosting(titleTokens, token, book.id());
+        }
+        for (String author : book.authors()) {
+            for (String token : TextNormalizer.tokenize(author)) {
+                removePosting(authorTokens, token, book.id());
+            }
+        }
+        for (String category : book.categories()) {
+            removePosting(categories, TextNormalizer.normalize(category), book.id());
+        }
+        if (book.isbn() != null) {
+            removePosting(isbns, TextNormalizer.digitsOnly(book.isbn()), book.id());
+        }
+        availableIds.clear(bit(book.id()));
+        updateFacets(book, -1);
+    }
+
+    private void updateFacets(BookSnapshot book, int delta) {
+        count(categoryCounts, book.categories(), delta);
+        count(authorCounts, book.authors(), delta);
+        if (book.language() != null) {
+            count(languageCounts, List.of(book.language()), delta);
+        }
+    }
+
+    private static int bit(Long bookId) {
+        return Math.toIntExact(bookId);
+    }
+
+    private static void removePosting(Map<String, Set<Long>> postings, String key, Long bookId) {
+        Set<Long> ids = postings.get(key);
+        if (ids != null) {
+            ids.remove(bookId);
+            if (ids.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package practice.bookrentalapp.search;
+
+import practice.bookrentalapp.model.entities.Book;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable copy of the catalog fields of a {@link Book}, safe to keep in memory and share between threads.
+ */
+public record BookSnapshot(
+        Long id,
+        String title,
+        List<String> authors,
+        List<String> categories,
+        String isbn,
+        String publisher,
+        String language,
+        Double averageRating,
+        Integer pageCount,
+        int totalCopies,
+        int copiesLent,
+        LocalDateTime updatedAt
+) {
+    public static BookSnapshot from(Book book) {
+        return from(book, book.getAuthors(), book.getCategories());
+    }
+
+    /**
+     * Builds a snapshot with separately loaded collections, for callers that fetch authors and categories in bulk.
+     */
+    public static BookSnapshot from(Book book, Collection<String> authors, Collection<String> categories) {
+        return new BookSnapshot(
+                book.getId(),
+                book.getTitle(),
+                authors != null ? List.copyOf(authors) : List.of(),
+                categories != null ? List.copyOf(categories) : List.of(),
+                book.getISBN(),
+                book.getPublisher(),
+                book.getLanguage(),
+                book.getAverageRating(),
+                book.getPageCount(),
+                book.getTotalCopies() != null ? book.getTotalCopies() : 0,
+                book.getCopiesLent() != null ? book.getCopiesLent() : 0,
+                book.getUpdatedAt()
+        );
+    }
+
+    public BookSnapshot withInventory(int totalCopies, int copiesLent) {
+        return new BookSnapshot(id, title, authors, categories, isbn, publisher, language, averageRating, pageCount,
+                totalCopies, copiesLent, updatedAt);
+    }
+
+    public boolean available() {
+        return totalCopies > copiesLent;
+    }
+}
@@ -0,0 +1,125 @@
+package practice.bookrentalapp.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import practice.bookrentalapp.model.entities.Book;
+import practice.bookrentalapp.model.events.CatalogChangedEvent;
+import practice.bookrentalapp.repositories.BookRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the {@link BookSearchIndex} and {@link SuggestionIndex} from the database on startup and keeps them
+ * current from {@link CatalogChangedEvent}s once their transactions commit. Changes committed while a rebuild is
+ * reading the catalog are held back and replayed after it, so a batch read before a change cannot overwrite it.
+ */
+@Component
+@Slf4j
+public class CatalogIndexUpdater {
+    private final BookSearchIndex bookSearchIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final BookRepository bookRepository;
+    private final Object rebuildLock = new Object();
+    // Changes to replay once the running rebuild has loaded the catalog; null while no rebuild is running
+    private List<CatalogChangedEvent> pendingChanges;
+
+    @Value("${catalog.search.index-enabled:true}")
+    private boolean indexEnabled;
+
+    @Value("${catalog.search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    @Autowired
+    public CatalogIndexUpdater(BookSearchIndex bookSearchIndex, SuggestionIndex suggestionIndex, BookRepository bookRepository) {
+        this.bookSearchIndex = bookSearchIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.bookRepository = bookRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!indexEnabled) {
+            log.info("Book search index disabled, catalog queries will use the database");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        synchronized (rebuildLock) {
+            pendingChanges = new ArrayList<>();
+            bookSearchIndex.clear();
+            suggestionIndex.clear();
+        }
+        boolean loaded = false;
+        try {
+            load();
+            loaded = true;
+        } finally {
+            synchronized (rebuildLock) {
+                pendingChanges.forEach(this::apply);
+                if (!pendingChanges.isEmpty()) {
+                    log.info("Replayed {} catalog changes committed during the rebuild", pendingChanges.size());
+                }
+                pendingChanges = null;
+                if (loaded) {
+                    bookSearchIndex.markReady();
+                }
+            }
+        }
+        log.info("Book search index rebuilt in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private void load() {
+        long lastId = 0L;
+        List<Book> batch;
+        do {
+            batch = bookRepository.findBatchAfterId(lastId, PageRequest.of(0, rebuildBatchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Long> ids = batch.stream().map(Book::getId).toList();
+            Map<Long, List<String>> authors = bookRepository.loadAuthors(ids);
+            Map<Long, List<String>> categories = bookRepository.loadCategories(ids);
+            List<BookSnapshot> snapshots = batch.stream()
+                    .map(book -> BookSnapshot.from(book,
+                            authors.getOrDefault(book.getId(), List.of()),
+                            categories.getOrDefault(book.getId(), List.of())))
+                    .toList();
+            bookSearchIndex.upsertAll(snapshots);
+            suggestionIndex.upsertAll(snapshots);
+            lastId = ids.get(ids.size() - 1);
+        } while (batch.size() == rebuildBatchSize);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!indexEnabled) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            if (pendingChanges != null) {
+                pendingChanges.add(event);
+                return;
+            }
+            apply(event);
+        }
+    }
+
+    private void apply(CatalogChangedEvent event) {
+        bookSearchIndex.removeAll(event.removed());
+        bookSearchIndex.upsertAll(event.upserted());
+        suggestionIndex.removeAll(event.removed());
+        suggestionIndex.upsertAll(event.upserted());
+        event.inventory().forEach(change ->
+                bookSearchIndex.updateInventory(change.bookId(), change.totalCopies(), change.copiesLent()));
+    }
+}
@@ -0,0 +1,113 @@
+package practice.bookrentalapp.search;
+
+import org.springframework.stereotype.Component;
+import practice.bookrentalapp.utils.LongIntHashMap;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Item-to-item "readers also borrowed" model. For every pair of books rented by the same user the pair's count
+ * is incremented once, no matter how often that user rents them again. Each book's neighbours are kept in a
+ * primitive map and ranked lazily into a cached top list that is invalidated when a count changes.
+ */
+@Component
+public class CoRentalIndex {
+    private static final int MAX_NEIGHBOURS = 50;
+
+    private final Map<Long, Neighbours> neighbours = new ConcurrentHashMap<>();
+    // Books each user has rented, used as a set so repeat rentals add no pairs
+    private final Map<Long, LongIntHashMap> booksByUser = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+
+    private static final class Neighbours {
+        private final LongIntHashMap counts = new LongIntHashMap();
+        private long[] top;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    public void clear() {
+        ready = false;
+        neighbours.clear();
+        booksByUser.clear();
+    }
+
+    /**
+     * Records that {@code userId} rented {@code bookIds}. Safe to call concurrently, including for the same user.
+     */
+    public void recordRental(Long userId, Collection<Long> bookIds) {
+        LongIntHashMap history = booksByUser.computeIfAbsent(userId, id -> new LongIntHashMap());
+        synchronized (history) {
+            for (Long bookId : bookIds) {
+                if (history.containsKey(bookId)) {
+                    continue;
+                }
+                for (long other : history.keys()) {
+                    increment(bookId, other);
+                    increment(other, bookId);
+                }
+                history.addTo(bookId, 1);
+            }
+        }
+    }
+
+    /**
+     * Ids of the books most often rented by readers of {@code bookId}, best first.
+     */
+    public List<Long> similar(Long bookId, int limit) {
+        Neighbours entry = neighbours.get(bookId);
+        if (entry == null) {
+            return List.of();
+        }
+        long[] top;
+        synchronized (entry) {
+            if (entry.top == null) {
+                entry.top = rank(entry.counts);
+            }
+            top = entry.top;
+        }
+        List<Long> result = new ArrayList<>(Math.min(limit, top.length));
+        for (int i = 0; i < top.length && i < limit; i++) {
+            result.add(top[i]);
+        }
+        return result;
+    }
+
+    private void increment(long bookId, long otherId) {
+        Neighbours entry = neighbours.computeIfAbsent(bookId, id -> new Neighbours());
+        synchronized (entry) {
+            entry.counts.addTo(otherId, 1);
+            entry.top = null;
+        }
+    }
+
+    private static long[] rank(LongIntHashMap counts) {
+        long[] ids = new long[counts.size()];
+        int[] values = new int[counts.size()];
+        int[] n = {0};
+        counts.forEach((id, count) -> {
+            ids[n[0]] = id;
+            values[n[0]] = count;
+            n[0]++;
+        });
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (left, right) -> values[left] != values[right]
+                ? Integer.compare(values[right], values[left])
+                : Long.compare(ids[left], ids[right]));
+        long[] top = new long[Math.min(MAX_NEIGHBOURS, order.length)];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = ids[order[i]];
+        }
+        return top;
+    }
+}
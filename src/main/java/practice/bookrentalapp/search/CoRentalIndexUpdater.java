@@ -0,0 +1,75 @@
+package practice.bookrentalapp.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import practice.bookrentalapp.model.events.RentalCreatedEvent;
+import practice.bookrentalapp.repositories.RentalRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds the {@link CoRentalIndex} from rental history on startup and feeds it new rentals once they commit.
+ */
+@Component
+@Slf4j
+public class CoRentalIndexUpdater {
+    private final CoRentalIndex coRentalIndex;
+    private final RentalRepository rentalRepository;
+
+    @Value("${catalog.recommendations.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalog.search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    @Autowired
+    public CoRentalIndexUpdater(CoRentalIndex coRentalIndex, RentalRepository rentalRepository) {
+        this.coRentalIndex = coRentalIndex;
+        this.rentalRepository = rentalRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            log.info("Co-rental recommendations disabled");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        coRentalIndex.clear();
+        Map<Long, List<Long>> booksByUser = new HashMap<>();
+        long lastId = 0L;
+        List<Long> rentalIds;
+        do {
+            rentalIds = rentalRepository.findIdsAfter(lastId, PageRequest.of(0, rebuildBatchSize));
+            if (rentalIds.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rentalRepository.findUserBookPairsByRentalIds(rentalIds)) {
+                booksByUser.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+            }
+            lastId = rentalIds.get(rentalIds.size() - 1);
+        } while (rentalIds.size() == rebuildBatchSize);
+
+        // Users are independent, so their histories are folded into the model in parallel
+        booksByUser.entrySet().parallelStream()
+                .forEach(entry -> coRentalIndex.recordRental(entry.getKey(), entry.getValue()));
+        coRentalIndex.markReady();
+        log.info("Co-rental index rebuilt from {} readers in {} ms", booksByUser.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRentalCreated(RentalCreatedEvent event) {
+        if (enabled) {
+            coRentalIndex.recordRental(event.userId(), event.bookIds());
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package practice.bookrentalapp.search;
+
+import org.springframework.stereotype.Component;
+import practice.bookrentalapp.model.dto.response.SuggestionResponse;
+import practice.bookrentalapp.utils.TextNormalizer;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Search-as-you-type over book titles and author names. Every word position of a term is kept in a sorted map,
+ * so a prefix lookup is a range scan. When too few terms share the typed prefix, terms sharing trigrams with the
+ * query are checked with a bounded edit distance to tolerate typos.
+ */
+@Component
+public class SuggestionIndex {
+    private static final int MAX_WORD_POSITIONS = 6;
+    private static final int MAX_FUZZY_CANDIDATES = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Term> terms = new HashMap<>();
+    private final NavigableMap<String, Set<Term>> prefixKeys = new TreeMap<>();
+    private final Map<String, Set<Term>> trigrams = new HashMap<>();
+    private final Map<Long, List<Term>> termsByBook = new HashMap<>();
+
+    private static final class Term {
+        private final String text;
+        private final String normalized;
+        private final String type;
+        private final Set<Long> bookIds = new HashSet<>();
+
+        private Term(String text, String normalized, String type) {
+            this.text = text;
+            this.normalized = normalized;
+            this.type = type;
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            prefixKeys.clear();
+            trigrams.clear();
+            termsByBook.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsertAll(Collection<BookSnapshot> books) {
+        lock.writeLock().lock();
+        try {
+            for (BookSnapshot book : books) {
+                detach(book.id());
+                List<Term> bookTerms = new ArrayList<>();
+                attach(book.id(), book.title(), "TITLE", bookTerms);
+                for (String author : book.authors()) {
+                    attach(book.id(), author, "AUTHOR", bookTerms);
+                }
+                termsByBook.put(book.id(), bookTerms);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(Collection<Long> bookIds) {
+        lock.writeLock().lock();
+        try {
+            bookIds.forEach(this::detach);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<SuggestionResponse> suggest(String query, int limit) {
+        String normalizedQuery = TextNormalizer.normalize(query);
+        if (normalizedQuery.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            // Exact prefix matches first: whole-term prefixes, then matches starting at a later word
+            Map<Term, Integer> ranked = new LinkedHashMap<>();
+            for (Set<Term> matches : prefixKeys.subMap(normalizedQuery, true, normalizedQuery + Character.MAX_VALUE, true).values()) {
+                for (Term term : matches) {
+                    ranked.merge(term, term.normalized.startsWith(normalizedQuery) ? 0 : 1, Math::min);
+                }
+                if (ranked.size() >= limit * 4) {
+                    break;
+                }
+            }
+            if (ranked.size() < limit) {
+                fuzzyMatches(normalizedQuery).forEach((term, distance) -> ranked.putIfAbsent(term, 1 + distance));
+            }
+            return ranked.entrySet().stream()
+                    .sorted(Comparator.<Map.Entry<Term, Integer>>comparingInt(Map.Entry::getValue)
+                            .thenComparing(entry -> -entry.getKey().bookIds.size())
+                            .thenComparing(entry -> entry.getKey().text))
+                    .limit(limit)
+                    .map(entry -> toResponse(entry.getKey()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Candidate(Term term, int overlap) {
+    }
+
+    /**
+     * Terms within {@code maxEdits} of a prefix of the query share most of its trigrams: each edit changes at most
+     * three, and a prefix match can miss the query's closing one. Only terms reaching that overlap are scored, and
+     * only the {@value #MAX_FUZZY_CANDIDATES} with the most shared trigrams are kept, in a bounded heap. A term with
+     * enough overlap appears in at least one of the smallest posting lists, so common trigrams are never scanned.
+     */
+    private Map<Term, Integer> fuzzyMatches(String query) {
+        int maxEdits = query.length() <= 4 ? 1 : 2;
+        List<Set<Term>> postings = trigramsOf(query).stream()
+                .map(gram -> trigrams.getOrDefault(gram, Set.of()))
+                .sorted(Comparator.comparingInt(Set::size))
+                .toList();
+        int minOverlap = Math.max(1, postings.size() - 3 * maxEdits - 1);
+        Set<Term> scored = new HashSet<>();
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingInt(Candidate::overlap));
+        for (Set<Term> posting : postings.subList(0, Math.max(0, postings.size() - minOverlap + 1))) {
+            for (Term term : posting) {
+                if (!scored.add(term)) {
+                    continue;
+                }
+                int overlap = 0;
+                for (Set<Term> other : postings) {
+                    if (other.contains(term)) {
+                        overlap++;
+                    }
+                }
+                if (overlap < minOverlap) {
+                    continue;
+                }
+                if (best.size() < MAX_FUZZY_CANDIDATES) {
+                    best.add(new Candidate(term, overlap));
+                } else if (overlap > best.peek().overlap()) {
+                    best.poll();
+                    best.add(new Candidate(term, overlap));
+                }
+            }
+        }
+        Map<Term, Integer> matches = new HashMap<>();
+        for (Candidate candidate : best) {
+            int distance = bestPrefixDistance(query, candidate.term().normalized, maxEdits);
+            if (distance <= maxEdits) {
+                matches.put(candidate.term(), distance);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Smallest edit distance between the query and a prefix of the term starting at any word boundary.
+     */
+    private static int bestPrefixDistance(String query, String term, int maxEdits) {
+        int best = Integer.MAX_VALUE;
+        int start = 0;
+        while (start >= 0 && start < term.length()) {
+            String rest = term.substring(start);
+            for (int length = Math.max(1, query.length() - maxEdits); length <= Math.min(rest.length(), query.length() + maxEdits); length++) {
+                best = Math.min(best, editDistance(query, rest.substring(0, length), maxEdits));
+            }
+            int space = term.indexOf(' ', start);
+            start = space < 0 ? -1 : space + 1;
+        }
+        return best;
+    }
+
+    private static int editDistance(String a, String b, int maxEdits) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return rowMin;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private void attach(Long bookId, String text, String type, List<Term> bookTerms) {
+        String normalized = TextNormalizer.normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        Term term = terms.computeIfAbsent(type + ":" + normalized, key -> {
+            Term created = new Term(text, normalized, type);
+            for (String suffix : wordSuffixes(normalized)) {
+                prefixKeys.computeIfAbsent(suffix, k -> new HashSet<>()).add(created);
+            }
+            for (String gram : trigramsOf(normalized)) {
+                trigrams.computeIfAbsent(gram, k -> new HashSet<>()).add(created);
+            }
+            return created;
+        });
+        term.bookIds.add(bookId);
+        bookTerms.add(term);
+    }
+
+    private void detach(Long bookId) {
+        List<Term> previous = termsByBook.remove(bookId);
+        if (previous == null) {
+            return;
+        }
+        for (Term term : previous) {
+            term.bookIds.remove(bookId);
+            if (!term.bookIds.isEmpty()) {
+                continue;
+            }
+            terms.remove(term.type + ":" + term.normalized);
+            for (String suffix : wordSuffixes(term.normalized)) {
+                Set<Term> set = prefixKeys.get(suffix);
+                if (set != null && set.remove(term) && set.isEmpty()) {
+                    prefixKeys.remove(suffix);
+                }
+            }
+            for (String gram : trigramsOf(term.normalized)) {
+                Set<Term> set = trigrams.get(gram);
+                if (set != null && set.remove(term) && set.isEmpty()) {
+                    trigrams.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static List<String> wordSuffixes(String normalized) {
+        List<String> suffixes = new ArrayList<>();
+        int start = 0;
+        while (start >= 0 && suffixes.size() < MAX_WORD_POSITIONS) {
+            suffixes.add(normalized.substring(start));
+            int space = normalized.indexOf(' ', start);
+            start = space < 0 ? -1 : space + 1;
+        }
+        return suffixes;
+    }
+
+    private static Set<String> trigramsOf(String text) {
+        Set<String> grams = new HashSet<>();
+        for (String word : text.split(" ")) {
+            String padded = " " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(padded.substring(i, i + 3));
+            }
+        }
+        return grams;
+    }
+
+    private static SuggestionResponse toResponse(Term term) {
+        Long bookId = "TITLE".equals(term.type) && term.bookIds.size() == 1 ? term.bookIds.iterator().next() : null;
+        return new SuggestionResponse(term.text, term.type, bookId);
+    }
+}
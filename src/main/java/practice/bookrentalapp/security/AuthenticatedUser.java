@@ -0,0 +1,77 @@
+package practice.bookrentalapp.security;
+
+import io.jsonwebtoken.Claims;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import practice.bookrentalapp.model.entities.User;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lightweight principal placed in the security context for authenticated requests.
+ * It can be built from JWT claims alone, so the auth filter does not need to load the {@link User} entity.
+ */
+@Getter
+public class AuthenticatedUser implements UserDetails {
+    private final Long id;
+    private final String username;
+    private final String email;
+    private final int securityVersion;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Long id, String username, String email, int securityVersion, List<GrantedAuthority> authorities) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.securityVersion = securityVersion;
+        this.authorities = Collections.unmodifiableList(authorities);
+    }
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getSecurityVersion() != null ? user.getSecurityVersion() : 0,
+                List.copyOf(user.getAuthorities())
+        );
+    }
+
+    public static AuthenticatedUser from(UserSnapshot user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getEmail(), user.getSecurityVersion(),
+                List.copyOf(user.getAuthorities()));
+    }
+
+    public static AuthenticatedUser fromClaims(Claims claims) {
+        Number userId = claims.get("uid", Number.class);
+        Number version = claims.get("ver", Number.class);
+        List<?> roles = claims.get("roles", List.class);
+        if (userId == null || version == null || roles == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(role)))
+                .toList();
+        return new AuthenticatedUser(
+                userId.longValue(),
+                claims.getSubject(),
+                claims.get("email", String.class),
+                version.intValue(),
+                authorities
+        );
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+}
@@ -1,31 +1,80 @@
 package practice.bookrentalapp.security;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import practice.bookrentalapp.model.entities.User;
 import practice.bookrentalapp.repositories.UserRepository;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+
 @Service
-@RequiredArgsConstructor(onConstructor_ = {@Autowired})
 @Slf4j
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    /**
+     * Users are cached under both their username and their email, mirroring the OR-lookup
+     * in {@link UserRepository#findByUsernameOrEmail}. Entries are immutable snapshots, never entities.
+     */
+    private final Cache<String, UserSnapshot> userCache;
+
+    @Autowired
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${security.user-cache.max-size:10000}") long maxSize,
+                                    @Value("${security.user-cache.ttl:5m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.userCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userCache, "userDetails");
+    }
 
     @Override
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    public UserSnapshot loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserSnapshot cached = userCache.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
         User user = userRepository.findByUsernameOrEmail(username, username);
         if (user == null) {
             log.error("User: {} not found", username);
             throw new UsernameNotFoundException("User not found with username or email: " + username);
         }
-        return user;
+        UserSnapshot snapshot = UserSnapshot.from(user);
+        userCache.put(snapshot.getUsername(), snapshot);
+        userCache.put(snapshot.getEmail(), snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Drops the cached entries for the given usernames/emails. When called inside a transaction the
+     * eviction happens after commit, so a concurrent lookup cannot re-cache the old row.
+     */
+    public void evict(String... keys) {
+        Runnable eviction = () -> userCache.invalidateAll(Arrays.stream(keys).filter(Objects::nonNull).toList());
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
     }
 }
@@ -0,0 +1,92 @@
+package practice.bookrentalapp.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import practice.bookrentalapp.model.entities.User;
+import practice.bookrentalapp.repositories.UserRepository;
+
+import java.time.Duration;
+
+/**
+ * Tracks the current security version of each user. Tokens carry the version they were issued with,
+ * and a token whose version is behind the current one (e.g. after a role change) is rejected.
+ * Versions are loaded from the database the first time a user is seen and cached for at most the
+ * configured TTL, so a change made through another instance is picked up within that time.
+ */
+@Component
+@Slf4j
+public class SecurityVersionRegistry {
+    private static final int UNKNOWN_USER = -1;
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Integer> versions;
+
+    @Autowired
+    public SecurityVersionRegistry(UserRepository userRepository,
+                                   @Value("${security.version-cache.max-size:100000}") long maxSize,
+                                   @Value("${security.version-cache.ttl:30s}") Duration ttl) {
+        this(userRepository, maxSize, ttl, Ticker.systemTicker());
+    }
+
+    SecurityVersionRegistry(UserRepository userRepository, long maxSize, Duration ttl, Ticker ticker) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .build();
+    }
+
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        Integer current = versions.get(userId,
+                id -> userRepository.findSecurityVersionById(id).orElse(UNKNOWN_USER));
+        if (current == UNKNOWN_USER) {
+            versions.invalidate(userId);
+            log.warn("Token presented for unknown user id: {}", userId);
+            return false;
+        }
+        return current == tokenVersion;
+    }
+
+    /**
+     * Records the user's new version. When called inside a transaction the version is only recorded after
+     * commit, so a rollback leaves this instance agreeing with the database.
+     */
+    public void update(User user) {
+        Long userId = user.getId();
+        int version = user.getSecurityVersion();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.put(userId, version);
+                }
+            });
+        } else {
+            versions.put(userId, version);
+        }
+    }
+
+    /**
+     * Sets the version of users created before the column existed to 0, matching the tokens issued to them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillVersions() {
+        int updated = userRepository.backfillSecurityVersions();
+        if (updated > 0) {
+            versions.invalidateAll();
+            log.info("Backfilled security versions for {} users", updated);
+        }
+    }
+}
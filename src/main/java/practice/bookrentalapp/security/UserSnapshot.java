@@ -0,0 +1,50 @@
+package practice.bookrentalapp.security;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import practice.bookrentalapp.model.entities.User;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable copy of the fields of a {@link User} needed to authenticate it, safe to keep in the user details cache
+ * and share between requests. Unlike a detached entity it has no lazy associations. It deliberately does not
+ * implement {@code CredentialsContainer}, so erasing credentials after a login cannot blank the cached hash.
+ */
+@Getter
+public final class UserSnapshot implements UserDetails {
+    private final Long id;
+    private final String username;
+    private final String email;
+    private final String password;
+    private final int securityVersion;
+    private final List<GrantedAuthority> authorities;
+
+    private UserSnapshot(Long id, String username, String email, String password, int securityVersion,
+                         List<GrantedAuthority> authorities) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.password = password;
+        this.securityVersion = securityVersion;
+        this.authorities = authorities;
+    }
+
+    public static UserSnapshot from(User user) {
+        return new UserSnapshot(
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getPassword(),
+                user.getSecurityVersion() != null ? user.getSecurityVersion() : 0,
+                List.copyOf(user.getAuthorities())
+        );
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+}
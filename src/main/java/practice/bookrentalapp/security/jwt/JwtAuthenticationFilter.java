@@ -1,11 +1,13 @@
 package practice.bookrentalapp.security.jwt;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,6 +17,10 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import practice.bookrentalapp.security.AuthenticatedUser;
+import practice.bookrentalapp.security.SecurityVersionRegistry;
+import practice.bookrentalapp.security.UserSnapshot;
+import practice.bookrentalapp.security.revocation.TokenRevocationService;
 
 import java.io.IOException;
 
@@ -24,6 +30,11 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtTokenProvider tokenProvider;
     private final UserDetailsService userDetailsService;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final TokenRevocationService tokenRevocationService;
+
+    @Value("${jwt.stateless-principal:true}")
+    private boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(
@@ -35,12 +46,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             log.debug("Extracted JWT token: {}", jwt);
 
             if (StringUtils.hasText(jwt)) {
-                if (tokenProvider.validateToken(jwt)) {
-                    String username = tokenProvider.getUsernameFromToken(jwt);
+                Claims claims = tokenProvider.parseAndValidate(jwt);
+                if (claims != null && tokenRevocationService.isRevoked(claims.getId())) {
+                    log.warn("Revoked JWT token presented: {}", claims.getId());
+                } else if (claims != null) {
+                    String username = claims.getSubject();
                     log.debug("Username extracted from token: {}", username);
 
                     if (StringUtils.hasText(username)) {
-                        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                        UserDetails userDetails = resolvePrincipal(claims, username);
 
                         if (userDetails != null) {
                             UsernamePasswordAuthenticationToken authentication =
@@ -66,6 +80,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolvePrincipal(Claims claims, String username) {
+        if (statelessPrincipal) {
+            AuthenticatedUser principal = AuthenticatedUser.fromClaims(claims);
+            if (principal != null) {
+                if (!securityVersionRegistry.isCurrent(principal.getId(), principal.getSecurityVersion())) {
+                    log.warn("JWT token for user: {} was issued before a security change", username);
+                    return null;
+                }
+                return principal;
+            }
+            log.debug("Token for user: {} has no principal claims, falling back to database lookup", username);
+        }
+        UserDetails user = userDetailsService.loadUserByUsername(username);
+        // The cached snapshot carries the password hash, which has no place in the security context
+        return user instanceof UserSnapshot snapshot ? AuthenticatedUser.from(snapshot) : user;
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
@@ -2,6 +2,8 @@ package practice.bookrentalapp.security.jwt;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,12 +11,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 import practice.bookrentalapp.model.entities.User;
+import practice.bookrentalapp.utils.TokenDigest;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Component
@@ -27,6 +29,20 @@ public class JwtTokenProvider {
     @Value("${jwt.expiration}")
     private Long jwtExpirationInMs;
 
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheMaxSize;
+
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+    private final Map<String, Claims> verifiedTokens = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        signingKey = new SecretKeySpec(keyBytes, "HmacSHA512");
+        jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
     public String generateToken(User user) {
         Date now = new Date(System.currentTimeMillis());
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
@@ -37,23 +53,47 @@ public class JwtTokenProvider {
                 .collect(Collectors.toList()));
         claims.put("email", user.getEmail());
         claims.put("sub", user.getUsername());
+        claims.put("uid", user.getId());
+        claims.put("ver", user.getSecurityVersion() != null ? user.getSecurityVersion() : 0);
 
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(user.getUsername())
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSecretKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Verifies the token once and returns its claims, or {@code null} if the token is invalid.
+     * Successfully verified tokens are remembered by digest until they expire, so repeated
+     * requests with the same token skip the signature check.
+     */
+    public Claims parseAndValidate(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String digest = TokenDigest.sha256(token);
+        Claims cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (!isExpired(cached)) {
+                return cached;
+            }
+            verifiedTokens.remove(digest);
+            logger.warn("Expired JWT token");
+            return null;
+        }
         try {
-            Jwts.parserBuilder().setSigningKey(getSecretKey()).build().parseClaimsJws(token);
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
             logger.debug("Valid token");
-            return true;
-        } catch (SecurityException | MalformedJwtException e) {
+            rememberVerified(digest, claims);
+            return claims;
+        } catch (SignatureException e) {
             logger.warn("Invalid JWT signature", e);
+        } catch (MalformedJwtException e) {
+            logger.warn("Malformed JWT token", e);
         } catch (ExpiredJwtException e) {
             logger.warn("Expired JWT token", e);
         } catch (UnsupportedJwtException e) {
@@ -61,21 +101,43 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException e) {
             logger.warn("JWT claims string is empty", e);
         }
-        return false;
+        return null;
+    }
+
+    public boolean validateToken(String token) {
+        return parseAndValidate(token) != null;
     }
 
     public String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSecretKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        Claims claims = parseAndValidate(token);
+        return claims != null ? claims.getSubject() : null;
     }
 
-    private SecretKey getSecretKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return new SecretKeySpec(keyBytes, "HmacSHA512");
+    private void rememberVerified(String digest, Claims claims) {
+        if (claims.getExpiration() == null) {
+            return;
+        }
+        if (verifiedTokens.size() >= verifiedCacheMaxSize) {
+            evictExpired();
+            if (verifiedTokens.size() >= verifiedCacheMaxSize) {
+                // Still full of live tokens: drop an arbitrary entry rather than grow unbounded.
+                Iterator<String> it = verifiedTokens.keySet().iterator();
+                if (it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            }
+        }
+        verifiedTokens.put(digest, claims);
+    }
+
+    private void evictExpired() {
+        verifiedTokens.values().removeIf(this::isExpired);
+    }
+
+    private boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration == null || !expiration.after(new Date());
     }
 
 }
@@ -0,0 +1,38 @@
+package practice.bookrentalapp.security.revocation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@ConditionalOnProperty(name = "security.revocation.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTokenRevocationStore implements TokenRevocationStore {
+    private final Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();
+
+    @Override
+    public void revoke(String tokenId, Instant expiresAt) {
+        revokedTokens.put(tokenId, expiresAt);
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId) {
+        Instant expiresAt = revokedTokens.get(tokenId);
+        return expiresAt != null && expiresAt.isAfter(Instant.now());
+    }
+
+    @Override
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        revokedTokens.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+    }
+
+    @Override
+    public Collection<String> activeTokenIds() {
+        return List.copyOf(revokedTokens.keySet());
+    }
+}
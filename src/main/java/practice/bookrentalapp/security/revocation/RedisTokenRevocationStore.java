@@ -0,0 +1,66 @@
+package practice.bookrentalapp.security.revocation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Revocation store shared between instances. Each entry is a key that Redis expires together with the token,
+ * so {@link #purgeExpired()} has nothing to do.
+ */
+@Component
+@ConditionalOnProperty(name = "security.revocation.store", havingValue = "redis")
+public class RedisTokenRevocationStore implements TokenRevocationStore {
+    private static final String KEY_PREFIX = "revoked-jwt:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Autowired
+    public RedisTokenRevocationStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public void revoke(String tokenId, Instant expiresAt) {
+        Duration ttl = Duration.between(Instant.now(), expiresAt);
+        if (ttl.isNegative() || ttl.isZero()) {
+            return;
+        }
+        redisTemplate.opsForValue().set(KEY_PREFIX + tokenId, "1", ttl);
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + tokenId));
+    }
+
+    @Override
+    public void purgeExpired() {
+        // Keys carry their own TTL
+    }
+
+    @Override
+    public Collection<String> activeTokenIds() {
+        return redisTemplate.execute((RedisCallback<List<String>>) connection -> {
+            List<String> ids = new ArrayList<>();
+            ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build();
+            try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                while (cursor.hasNext()) {
+                    ids.add(new String(cursor.next(), StandardCharsets.UTF_8).substring(KEY_PREFIX.length()));
+                }
+            }
+            return ids;
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package practice.bookrentalapp.security.revocation;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import practice.bookrentalapp.utils.BloomFilter;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Answers "is this token revoked?" without touching the store for the common case. Every revoked ID is
+ * added to an in-memory Bloom filter, and only IDs the filter might contain are checked against the store.
+ * With a shared store, revocations made by other instances are picked up when the filter is rebuilt.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+    private final TokenRevocationStore store;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private volatile BloomFilter bloomFilter;
+
+    @Autowired
+    public TokenRevocationService(TokenRevocationStore store,
+                                  @Value("${security.revocation.expected-entries:100000}") int expectedEntries,
+                                  @Value("${security.revocation.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.store = store;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    @PostConstruct
+    void init() {
+        rebuildFilter();
+    }
+
+    public synchronized void revoke(String tokenId, Instant expiresAt) {
+        store.revoke(tokenId, expiresAt);
+        bloomFilter.put(tokenId);
+        log.debug("Token {} revoked until {}", tokenId, expiresAt);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !bloomFilter.mightContain(tokenId)) {
+            return false;
+        }
+        return store.isRevoked(tokenId);
+    }
+
+    @Scheduled(fixedDelayString = "${security.revocation.purge-interval:PT5M}")
+    public void purgeExpired() {
+        store.purgeExpired();
+        rebuildFilter();
+    }
+
+    private synchronized void rebuildFilter() {
+        Collection<String> activeIds = store.activeTokenIds();
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, activeIds.size() * 2), falsePositiveRate);
+        activeIds.forEach(rebuilt::put);
+        bloomFilter = rebuilt;
+        log.debug("Revocation filter rebuilt with {} active entries", activeIds.size());
+    }
+}
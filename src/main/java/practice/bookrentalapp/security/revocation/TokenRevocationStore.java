@@ -0,0 +1,23 @@
+package practice.bookrentalapp.security.revocation;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Storage for revoked JWT IDs. Entries only need to live until the token itself expires.
+ */
+public interface TokenRevocationStore {
+    void revoke(String tokenId, Instant expiresAt);
+
+    boolean isRevoked(String tokenId);
+
+    /**
+     * Removes entries whose tokens have already expired.
+     */
+    void purgeExpired();
+
+    /**
+     * IDs of all revoked tokens that have not expired yet, used to rebuild the in-memory filter.
+     */
+    Collection<String> activeTokenIds();
+}
@@ -1,5 +1,6 @@
 package practice.bookrentalapp.service;
 
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.coyote.BadRequestException;
@@ -9,15 +10,19 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import practice.bookrentalapp.model.dto.request.LoginRequest;
+import practice.bookrentalapp.model.dto.request.RefreshTokenRequest;
 import practice.bookrentalapp.model.dto.request.RegisterRequest;
 import practice.bookrentalapp.model.dto.response.AuthResponse;
 import practice.bookrentalapp.model.entities.User;
 import practice.bookrentalapp.model.enums.Role;
 import practice.bookrentalapp.repositories.UserRepository;
+import practice.bookrentalapp.security.UserSnapshot;
 import practice.bookrentalapp.security.jwt.JwtTokenProvider;
+import practice.bookrentalapp.security.revocation.TokenRevocationService;
 import practice.bookrentalapp.utils.EntityDtoMapper;
 
 @Service
@@ -29,6 +34,8 @@ public class AuthService {
     private final JwtTokenProvider jwtTokenProvider;
     private final AuthenticationManager authenticationManager;
     private final EntityDtoMapper entityDtoMapper;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
 
     public AuthResponse register(RegisterRequest registerRequest) throws BadRequestException {
         log.debug("Starting registration for username: {}", registerRequest.getUsername());
@@ -43,23 +50,14 @@ public class AuthService {
         User savedUser = userRepository.save(user);
         log.debug("User saved successfully: {}", savedUser.getUsername());
 
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            registerRequest.getUsername(),
-                            registerRequest.getPassword()
-                    )
-            );
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            log.debug("User authenticated successfully after registration");
-            String jwt = jwtTokenProvider.generateToken(savedUser);
-            log.debug("JWT token generated for new user");
+        // The password was hashed just above, so there is no need to verify it again through the authentication manager
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(savedUser, null, savedUser.getAuthorities())
+        );
+        String jwt = jwtTokenProvider.generateToken(savedUser);
+        log.debug("JWT token generated for new user");
 
-            return new AuthResponse(jwt, "Bearer", entityDtoMapper.mapToUserDto(savedUser));
-        } catch (AuthenticationException e) {
-            log.error("Authentication failed after registration", e);
-            throw new BadRequestException("Authentication failed after registration");
-        }
+        return new AuthResponse(jwt, "Bearer", refreshTokenService.issue(savedUser), entityDtoMapper.mapToUserDto(savedUser));
     }
 
     public AuthResponse login(LoginRequest request) throws BadRequestException {
@@ -74,13 +72,16 @@ public class AuthService {
             );
 
             SecurityContextHolder.getContext().setAuthentication(authentication);
-            User user = (User) authentication.getPrincipal();
+            // The principal is the cached snapshot; tokens and the response are built from the current row
+            UserSnapshot principal = (UserSnapshot) authentication.getPrincipal();
+            User user = userRepository.findById(principal.getId())
+                    .orElseThrow(() -> new UsernameNotFoundException("User no longer exists: " + principal.getUsername()));
             log.debug("User authenticated successfully: {}", user.getUsername());
 
             String jwt = jwtTokenProvider.generateToken(user);
             log.debug("JWT token generated successfully");
 
-            return new AuthResponse(jwt, "Bearer", entityDtoMapper.mapToUserDto(user));
+            return new AuthResponse(jwt, "Bearer", refreshTokenService.issue(user), entityDtoMapper.mapToUserDto(user));
 
         } catch (AuthenticationException e) {
             log.error("Authentication failed for user: {}", request.getUsernameOrEmail(), e);
@@ -88,6 +89,30 @@ public class AuthService {
         }
     }
 
+    public AuthResponse refresh(RefreshTokenRequest request) throws BadRequestException {
+        User user = refreshTokenService.consume(request.getRefreshToken());
+        log.debug("Refresh token rotated for user: {}", user.getUsername());
+
+        String jwt = jwtTokenProvider.generateToken(user);
+        return new AuthResponse(jwt, "Bearer", refreshTokenService.issue(user), entityDtoMapper.mapToUserDto(user));
+    }
+
+    public void logout(String authorizationHeader) throws BadRequestException {
+        String token = authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                ? authorizationHeader.substring(7)
+                : null;
+        Claims claims = jwtTokenProvider.parseAndValidate(token);
+        if (claims == null || claims.getId() == null) {
+            throw new BadRequestException("Invalid or missing access token");
+        }
+        tokenRevocationService.revoke(claims.getId(), claims.getExpiration().toInstant());
+        Number userId = claims.get("uid", Number.class);
+        if (userId != null) {
+            refreshTokenService.revokeAll(userId.longValue());
+        }
+        log.debug("User logged out: {}", claims.getSubject());
+    }
+
     private User createUser(RegisterRequest request) {
         User user = new User();
         user.setUsername(request.getUsername());
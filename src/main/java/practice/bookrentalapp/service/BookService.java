@@ -1,26 +1,46 @@
 package practice.bookrentalapp.service;
 
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.BadRequestException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import practice.bookrentalapp.exceptions.ServiceOverloadedException;
 import practice.bookrentalapp.model.dto.entityDtos.BookDto;
+import practice.bookrentalapp.model.dto.projections.BookListingView;
 import practice.bookrentalapp.model.dto.request.BookFilter;
 import practice.bookrentalapp.model.dto.request.UpdateBookRequest;
+import practice.bookrentalapp.model.dto.response.CursorPageResponse;
+import practice.bookrentalapp.model.dto.response.FacetResponse;
 import practice.bookrentalapp.model.dto.response.PageBookResponse;
+import practice.bookrentalapp.model.dto.response.SuggestionResponse;
 import practice.bookrentalapp.model.entities.Book;
+import practice.bookrentalapp.model.events.CatalogChangedEvent;
 import practice.bookrentalapp.repositories.BookRepository;
+import practice.bookrentalapp.search.BookCursor;
+import practice.bookrentalapp.search.BookSearchIndex;
+import practice.bookrentalapp.search.BookSnapshot;
+import practice.bookrentalapp.search.CoRentalIndex;
+import practice.bookrentalapp.search.SuggestionIndex;
 import practice.bookrentalapp.utils.EntityDtoMapper;
+import practice.bookrentalapp.utils.TextNormalizer;
 
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.Set;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,59 +48,351 @@ import java.util.stream.Collectors;
 public class BookService {
     private final BookRepository bookRepository;
     private final EntityDtoMapper entityDtoMapper;
+    private final BookSearchIndex bookSearchIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final CoRentalIndex coRentalIndex;
+    private final CatalogResponseCache catalogResponseCache;
+    private final CatalogDeduplicator catalogDeduplicator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
-    public BookService(BookRepository bookRepository, EntityDtoMapper entityDtoMapper) {
+    public BookService(BookRepository bookRepository, EntityDtoMapper entityDtoMapper,
+                       BookSearchIndex bookSearchIndex, SuggestionIndex suggestionIndex, CoRentalIndex coRentalIndex,
+                       CatalogResponseCache catalogResponseCache, CatalogDeduplicator catalogDeduplicator,
+                       ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
         this.bookRepository = bookRepository;
         this.entityDtoMapper = entityDtoMapper;
+        this.bookSearchIndex = bookSearchIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.coRentalIndex = coRentalIndex;
+        this.catalogResponseCache = catalogResponseCache;
+        this.catalogDeduplicator = catalogDeduplicator;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
-    List<Book> saveBooksBatch(List<Book> books) {
+    public record IngestResult(List<Book> saved, List<CatalogDeduplicator.Match> matched, int duplicates) {
+    }
+
+    IngestResult saveBooksBatch(Collection<Book> books) {
+        CatalogDeduplicator.Collector collector = new CatalogDeduplicator.Collector();
+        books.forEach(collector::offer);
+        return saveUnique(collector);
+    }
+
+    /**
+     * Saves the collected books that are not yet in the catalog, one chunk per transaction. A chunk that loses
+     * a race on the unique ISBN with a concurrent ingest is retried row by row, and the conflicting rows are
+     * reported as matches of the book that won.
+     */
+    IngestResult saveUnique(CatalogDeduplicator.Collector collector) {
+        List<Book> books = collector.books();
         log.info("Saving unique books from a batch of size {}", books.size());
-        Set<String> titles = books.stream().map(Book::getTitle).collect(Collectors.toSet());
-        Set<String> isbn = books.stream()
-                .map(Book::getISBN)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+        List<Book> saved = new ArrayList<>();
+        List<CatalogDeduplicator.Match> matched = new ArrayList<>();
+        int chunkSize = catalogDeduplicator.getChunkSize();
+        for (int from = 0; from < books.size(); from += chunkSize) {
+            CatalogDeduplicator.Result result = catalogDeduplicator.againstCatalog(
+                    books.subList(from, Math.min(from + chunkSize, books.size())));
+            matched.addAll(result.matched());
+            if (result.fresh().isEmpty()) {
+                continue;
+            }
+            try {
+                saved.addAll(transactionTemplate.execute(status -> persist(result.fresh())));
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Chunk of {} books conflicted with a concurrent ingest, saving row by row", result.fresh().size());
+                for (Book book : result.fresh()) {
+                    resetForRetry(book);
+                    try {
+                        saved.addAll(transactionTemplate.execute(status -> persist(List.of(book))));
+                    } catch (DataIntegrityViolationException conflict) {
+                        catalogDeduplicator.findExisting(book)
+                                .ifPresent(existingId -> matched.add(new CatalogDeduplicator.Match(book, existingId)));
+                    }
+                }
+            }
+        }
+        log.info("Saved {} new books, {} matched existing books, {} duplicates within the batch",
+                saved.size(), matched.size(), collector.duplicates());
+        return new IngestResult(saved, matched, collector.duplicates());
+    }
 
-        Set<String> existingTitles = bookRepository.findExistingTitlesByTitleOrIsbn(titles, isbn);
-        List<Book> newBooks = books.stream()
-                .filter(book -> !existingTitles.contains(book.getTitle()))
-                .collect(Collectors.toList());
-        log.info("Found {} unique books to be saved", newBooks.size());
-        return bookRepository.saveAll(newBooks);
+    private List<Book> persist(List<Book> books) {
+        List<Book> savedBooks = bookRepository.saveAll(books);
+        bookRepository.flush();
+        eventPublisher.publishEvent(CatalogChangedEvent.upserted(savedBooks.stream().map(BookSnapshot::from).toList()));
+        return savedBooks;
+    }
+
+    // A rolled-back persist leaves the generated id and session-bound collections behind
+    private static void resetForRetry(Book book) {
+        book.setId(null);
+        book.setAuthors(new HashSet<>(book.getAuthors()));
+        book.setCategories(new HashSet<>(book.getCategories()));
+    }
+
+    /**
+     * Cached listing for the catalog endpoint: a keyset page when {@code seek} or a cursor is given, otherwise
+     * an offset page. The entry's ETag changes whenever the catalog does.
+     */
+    public CatalogResponseCache.Entry<?> getBookListing(BookFilter searchParams) throws BadRequestException {
+        if (Boolean.TRUE.equals(searchParams.getSeek()) || searchParams.getCursor() != null) {
+            return catalogResponseCache.getListing(searchParams, () -> seekBooks(searchParams));
+        }
+        return catalogResponseCache.getListing(searchParams, () -> getBooks(searchParams));
     }
 
     public Page<PageBookResponse> getBooks(BookFilter searchParams) {
-        Pageable pageable = PageRequest.of(
-                searchParams.getPage(),
-                searchParams.getSize(),
-                searchParams.getDir().equalsIgnoreCase("asc")
-                        ? Sort.by(searchParams.getOrderBy()).ascending()
-                        : Sort.by(searchParams.getOrderBy()).descending()
-        );
-        Page<Book> books = bookRepository.fetchByFilters(
-                searchParams.getTitle(),
-                searchParams.getAuthor(),
-                searchParams.getIsbn(),
-                searchParams.getAvailable(),
-                searchParams.getCategories(),
-                searchParams.getRatingGreaterThan(),
-                pageable
-        );
-        return books.map(book -> {
+        if (bookSearchIndex.isReady()) {
+            return bookSearchIndex.search(searchParams).map(this::toPageBookResponse);
+        }
+        // Fixed number of statements per page: ids, count, listing columns, authors and categories
+        Page<Long> bookIds = fetchIdsFromDatabase(searchParams);
+        List<Long> ids = bookIds.getContent();
+        if (ids.isEmpty()) {
+            return bookIds.map(id -> new PageBookResponse());
+        }
+        Map<Long, BookListingView> rows = bookRepository.findListingViewsByIds(ids).stream()
+                .collect(Collectors.toMap(BookListingView::getId, Function.identity()));
+        Map<Long, List<String>> authors = bookRepository.loadAuthors(ids);
+        Map<Long, List<String>> categories = bookRepository.loadCategories(ids);
+        return bookIds.map(id -> {
+            BookListingView book = rows.get(id);
             PageBookResponse bookResponse = new PageBookResponse();
-            bookResponse.setBookId(book.getId());
+            bookResponse.setBookId(id);
             bookResponse.setTitle(book.getTitle());
-            bookResponse.setAuthors(book.getAuthors());
+            bookResponse.setAuthors(new HashSet<>(authors.getOrDefault(id, List.of())));
             bookResponse.setPublisher(book.getPublisher());
-            bookResponse.setCategories(book.getCategories());
+            bookResponse.setCategories(new HashSet<>(categories.getOrDefault(id, List.of())));
             bookResponse.setAverageRating(book.getAverageRating());
             return bookResponse;
         });
     }
 
+    /**
+     * Offset page of ids in the same order as the search index: the sort key with nulls last, then id. Relevance
+     * falls back to title order, without changing the caller's filter.
+     */
+    private Page<Long> fetchIdsFromDatabase(BookFilter searchParams) {
+        String orderBy = "relevance".equals(searchParams.getOrderBy()) ? "title" : searchParams.getOrderBy();
+        boolean ascending = !"desc".equalsIgnoreCase(searchParams.getDir());
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<Book> from = cq.from(Book.class);
+        List<Predicate> predicates = buildPredicates(cq, from, searchParams, cb);
+
+        Expression<?> key = switch (orderBy) {
+            case "publisher" -> cb.lower(from.get("publisher"));
+            case "averageRating" -> from.get("averageRating");
+            case "pageCount" -> from.get("pageCount");
+            case "authors" -> {
+                Subquery<String> firstAuthor = cq.subquery(String.class);
+                Root<Book> book = firstAuthor.from(Book.class);
+                Join<Book, String> author = book.join("authors");
+                firstAuthor.select(cb.least(cb.lower(author))).where(cb.equal(book.get("id"), from.get("id")));
+                yield firstAuthor;
+            }
+            default -> cb.lower(from.get("title"));
+        };
+        Expression<Integer> nullsLast = cb.<Integer>selectCase().when(cb.isNull(key), 1).otherwise(0);
+        cq.select(from.get("id")).where(predicates.toArray(new Predicate[0]));
+        cq.orderBy(cb.asc(nullsLast), ascending ? cb.asc(key) : cb.desc(key), cb.asc(from.get("id")));
+
+        Pageable pageable = PageRequest.of(searchParams.getPage(), searchParams.getSize());
+        List<Long> ids = entityManager.createQuery(cq)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        return new PageImpl<>(ids, pageable, countFromDatabase(searchParams));
+    }
+
+    /**
+     * Keyset (seek) pagination: rows are ordered by the sort key and id, and the next page starts strictly after
+     * the last row of the previous one, so deep pages cost the same as the first.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<PageBookResponse> seekBooks(BookFilter searchParams) throws BadRequestException {
+        BookCursor after = searchParams.getCursor() != null ? BookCursor.decode(searchParams.getCursor()) : null;
+        String orderBy = after != null ? after.orderBy() : searchParams.getOrderBy();
+        String dir = after != null ? after.dir() : searchParams.getDir();
+        if (!BookCursor.SORT_KEYS.contains(orderBy)) {
+            throw new BadRequestException("Cursor pagination supports orderBy: " + String.join(", ", BookCursor.SORT_KEYS));
+        }
+        boolean ascending = !"desc".equalsIgnoreCase(dir);
+        int size = searchParams.getSize();
+
+        List<PageBookResponse> content;
+        Long total = null;
+        String nextCursor = null;
+        if (bookSearchIndex.isReady()) {
+            BookSearchIndex.SeekResult result = bookSearchIndex.seek(searchParams, orderBy, ascending, after, size + 1);
+            List<BookSnapshot> rows = result.rows();
+            if (rows.size() > size) {
+                BookSnapshot last = rows.get(size - 1);
+                nextCursor = new BookCursor(orderBy, dir, String.valueOf(BookCursor.sortKey(last, orderBy)), last.id()).encode();
+                rows = rows.subList(0, size);
+            }
+            content = rows.stream().map(this::toPageBookResponse).toList();
+            if (Boolean.TRUE.equals(searchParams.getIncludeTotal())) {
+                total = result.total();
+            }
+        } else {
+            List<Book> rows = seekFromDatabase(searchParams, orderBy, ascending, after, size + 1);
+            boolean hasMore = rows.size() > size;
+            if (hasMore) {
+                rows = rows.subList(0, size);
+            }
+            List<Long> ids = rows.stream().map(Book::getId).toList();
+            Map<Long, List<String>> authors = bookRepository.loadAuthors(ids);
+            Map<Long, List<String>> categories = bookRepository.loadCategories(ids);
+            List<BookSnapshot> snapshots = rows.stream()
+                    .map(book -> BookSnapshot.from(book,
+                            authors.getOrDefault(book.getId(), List.of()),
+                            categories.getOrDefault(book.getId(), List.of())))
+                    .toList();
+            if (hasMore) {
+                BookSnapshot last = snapshots.get(size - 1);
+                nextCursor = new BookCursor(orderBy, dir, String.valueOf(BookCursor.sortKey(last, orderBy)), last.id()).encode();
+            }
+            content = snapshots.stream().map(this::toPageBookResponse).toList();
+            if (Boolean.TRUE.equals(searchParams.getIncludeTotal())) {
+                total = countFromDatabase(searchParams);
+            }
+        }
+        return new CursorPageResponse<>(content, content.size(), nextCursor, total);
+    }
+
+    private List<Book> seekFromDatabase(BookFilter searchParams, String orderBy, boolean ascending, BookCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> cq = cb.createQuery(Book.class);
+        Root<Book> from = cq.from(Book.class);
+        List<Predicate> predicates = buildPredicates(cq, from, searchParams, cb);
+
+        Expression<? extends Comparable<?>> key = switch (orderBy) {
+            case "publisher" -> cb.lower(cb.<String>coalesce(from.get("publisher"), ""));
+            case "averageRating" -> cb.<Double>coalesce(from.get("averageRating"), -1.0);
+            case "pageCount" -> cb.<Integer>coalesce(from.get("pageCount"), -1);
+            default -> cb.lower(cb.<String>coalesce(from.get("title"), ""));
+        };
+        if (after != null) {
+            predicates.add(afterCursor(cb, key, after, from.get("id"), ascending));
+        }
+        cq.select(from).where(predicates.toArray(new Predicate[0]));
+        cq.orderBy(ascending
+                ? List.of(cb.asc(key), cb.asc(from.get("id")))
+                : List.of(cb.desc(key), cb.desc(from.get("id"))));
+        return entityManager.createQuery(cq).setMaxResults(limit).getResultList();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate afterCursor(CriteriaBuilder cb, Expression key, BookCursor after, Path<Long> id, boolean ascending) {
+        Comparable value = after.typedValue();
+        Predicate sameKey = cb.equal(key, value);
+        return ascending
+                ? cb.or(cb.greaterThan(key, value), cb.and(sameKey, cb.greaterThan(id, after.id())))
+                : cb.or(cb.lessThan(key, value), cb.and(sameKey, cb.lessThan(id, after.id())));
+    }
+
+    private long countFromDatabase(BookFilter searchParams) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<Book> countRoot = countQuery.from(Book.class);
+        List<Predicate> predicates = buildPredicates(countQuery, countRoot, searchParams, cb);
+        countQuery.select(cb.count(countRoot)).where(predicates.toArray(new Predicate[0]));
+        return entityManager.createQuery(countQuery).getSingleResult();
+    }
+
+    /**
+     * Same matching rule as {@link BookSearchIndex}: every title token and every author token must appear among the
+     * book's normalized tokens, and any requested category matches after normalization.
+     */
+    private List<Predicate> buildPredicates(CriteriaQuery<?> cq, Root<Book> from, BookFilter searchParams, CriteriaBuilder cb) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (StringUtils.hasText(searchParams.getTitle())) {
+            predicates.addAll(containsTokens(cb, from.get("titleKey"), TextNormalizer.tokenize(searchParams.getTitle())));
+        }
+        if (StringUtils.hasText(searchParams.getAuthor())) {
+            predicates.addAll(containsTokens(cb, from.get("authorKey"), TextNormalizer.tokenize(searchParams.getAuthor())));
+        }
+        if (searchParams.getCategories() != null && !searchParams.getCategories().isEmpty()) {
+            predicates.add(cb.or(searchParams.getCategories().stream()
+                    .map(category -> cb.like(from.get("categoryKey"), "%|" + TextNormalizer.normalize(category) + "|%"))
+                    .toArray(Predicate[]::new)));
+        }
+        if (searchParams.getIsbn() != null) {
+            predicates.add(cb.equal(from.get("ISBN"), TextNormalizer.digitsOnly(searchParams.getIsbn())));
+        }
+        if (Boolean.TRUE.equals(searchParams.getAvailable())) {
+            predicates.add(cb.greaterThan(from.<Integer>get("totalCopies"), from.<Integer>get("copiesLent")));
+        }
+        if (searchParams.getRatingGreaterThan() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(from.<Double>get("averageRating"), searchParams.getRatingGreaterThan()));
+        }
+        return predicates;
+    }
+
+    // Tokens are letters and digits only, so they never contain LIKE wildcards
+    private static List<Predicate> containsTokens(CriteriaBuilder cb, Expression<String> key, List<String> tokens) {
+        Expression<String> padded = cb.concat(cb.concat(" ", key), " ");
+        return tokens.stream().map(token -> cb.like(padded, "% " + token + " %")).toList();
+    }
+
+    private PageBookResponse toPageBookResponse(BookSnapshot book) {
+        PageBookResponse bookResponse = new PageBookResponse();
+        bookResponse.setBookId(book.id());
+        bookResponse.setTitle(book.title());
+        bookResponse.setAuthors(new HashSet<>(book.authors()));
+        bookResponse.setPublisher(book.publisher());
+        bookResponse.setCategories(new HashSet<>(book.categories()));
+        bookResponse.setAverageRating(book.averageRating());
+        return bookResponse;
+    }
+
+    /**
+     * Title and author completions for a partially typed query. Both indexes are rebuilt together, so suggestions
+     * are empty until the catalog index is ready.
+     */
+    public List<SuggestionResponse> suggest(String query, int limit) {
+        if (!bookSearchIndex.isReady()) {
+            log.debug("Catalog index not ready, returning no suggestions for: {}", query);
+            return List.of();
+        }
+        return suggestionIndex.suggest(query, limit);
+    }
+
+    public FacetResponse getFacets(BookFilter searchParams, int limit) {
+        if (!bookSearchIndex.isReady()) {
+            throw new ServiceOverloadedException("Catalog index is still loading, facets are not available yet");
+        }
+        return bookSearchIndex.facets(searchParams, limit);
+    }
+
+    /**
+     * Books most often rented by readers of {@code bookId}, served from the in-memory co-rental model and catalog index.
+     */
+    public List<PageBookResponse> getSimilarBooks(Long bookId, int limit) {
+        if (!coRentalIndex.isReady() || !bookSearchIndex.isReady()) {
+            throw new ServiceOverloadedException("Recommendations are still loading");
+        }
+        return coRentalIndex.similar(bookId, limit).stream()
+                .map(bookSearchIndex::get)
+                .flatMap(Optional::stream)
+                .map(this::toPageBookResponse)
+                .toList();
+    }
+
+    public CatalogResponseCache.Entry<BookDto> getCachedBookById(Long id) {
+        return catalogResponseCache.getBook(id, () -> {
+            Book book = bookRepository.findById(id).orElseThrow(IllegalArgumentException::new);
+            return new CatalogResponseCache.Entry<>(entityDtoMapper.mapToBookDto(book),
+                    CatalogResponseCache.bookEtag(book.getId(), book.getUpdatedAt()));
+        });
+    }
+
     public BookDto getBookById(Long id) {
         Book book = bookRepository.findById(id).orElseThrow(IllegalArgumentException::new); //Change exception type to custom
         return entityDtoMapper.mapToBookDto(book);
@@ -104,7 +416,15 @@ public class BookService {
                     }
                     book.setTotalCopies(book.getTotalCopies() + copiesToAdd);
                 });
-        return entityDtoMapper.mapToBookDto(bookRepository.save(book));
+        // Collection changes alone do not dirty the book row, so neither @PreUpdate nor auditing would run and
+        // the book's ETag, which comes from updatedAt, would not change
+        book.normalizeKeys();
+        if (updateBookRequest.getCategories() != null || updateBookRequest.getAuthors() != null) {
+            book.setUpdatedAt(LocalDateTime.now());
+        }
+        Book savedBook = bookRepository.saveAndFlush(book);
+        eventPublisher.publishEvent(CatalogChangedEvent.upserted(List.of(BookSnapshot.from(savedBook))));
+        return entityDtoMapper.mapToBookDto(savedBook);
     }
 
     public void deleteBook(Long bookId) {
@@ -113,6 +433,7 @@ public class BookService {
             throw new RuntimeException("Cannot delete book with copies lent");
         }
         bookRepository.deleteById(bookId);
+        eventPublisher.publishEvent(CatalogChangedEvent.removed(bookId));
     }
 
 }
@@ -0,0 +1,159 @@
+package practice.bookrentalapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import practice.bookrentalapp.model.entities.Book;
+import practice.bookrentalapp.repositories.BookRepository;
+import practice.bookrentalapp.utils.TextNormalizer;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Duplicate detection for ingested books. Titles are compared by their normalized key and ISBNs by their
+ * digits; an incoming book duplicates an existing one when either matches. Catalog lookups go through the
+ * indexed title_key and unique ISBN columns in fixed-size chunks instead of one unbounded IN/OR query.
+ */
+@Component
+@Slf4j
+public class CatalogDeduplicator {
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${catalog.dedup.chunk-size:500}")
+    private int chunkSize;
+
+    public record Match(Book incoming, Long existingId) {
+    }
+
+    public record Result(List<Book> fresh, List<Match> matched) {
+    }
+
+    /**
+     * Keeps the first book offered for each normalized title and ISBN, in the order they were offered. Safe to
+     * feed from several search groups at once, so groups are merged as they finish rather than after all of
+     * them complete.
+     */
+    public static class Collector {
+        private final ConcurrentMap<String, Book> byTitleKey = new ConcurrentHashMap<>();
+        private final Set<String> isbns = ConcurrentHashMap.newKeySet();
+        // Accepted books in offer order; the key maps above only answer membership
+        private final Queue<Book> accepted = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger duplicates = new AtomicInteger();
+
+        public boolean offer(Book book) {
+            book.normalizeKeys();
+            String isbn = book.getISBN();
+            if (isbn != null && !isbns.add(isbn)) {
+                duplicates.incrementAndGet();
+                return false;
+            }
+            if (byTitleKey.putIfAbsent(book.getTitleKey(), book) != null) {
+                if (isbn != null) {
+                    isbns.remove(isbn);
+                }
+                duplicates.incrementAndGet();
+                return false;
+            }
+            accepted.add(book);
+            return true;
+        }
+
+        public List<Book> books() {
+            return new ArrayList<>(accepted);
+        }
+
+        public int duplicates() {
+            return duplicates.get();
+        }
+    }
+
+    @Autowired
+    public CatalogDeduplicator(BookRepository bookRepository, PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Splits already normalized books into those not yet in the catalog and those matching an existing book.
+     * Callers pass at most {@link #getChunkSize()} books so each lookup stays within parameter limits.
+     */
+    public Result againstCatalog(List<Book> books) {
+        Set<String> titleKeys = new HashSet<>();
+        Set<String> isbns = new HashSet<>();
+        for (Book book : books) {
+            titleKeys.add(book.getTitleKey());
+            if (book.getISBN() != null) {
+                isbns.add(book.getISBN());
+            }
+        }
+        Map<String, Long> existingByTitleKey = toMap(titleKeys.isEmpty() ? List.of() : bookRepository.findIdsByTitleKeys(titleKeys));
+        Map<String, Long> existingByIsbn = toMap(isbns.isEmpty() ? List.of() : bookRepository.findIdsByIsbns(isbns));
+
+        List<Book> fresh = new ArrayList<>();
+        List<Match> matched = new ArrayList<>();
+        for (Book book : books) {
+            Long existingId = book.getISBN() != null ? existingByIsbn.get(book.getISBN()) : null;
+            if (existingId == null) {
+                existingId = existingByTitleKey.get(book.getTitleKey());
+            }
+            if (existingId != null) {
+                matched.add(new Match(book, existingId));
+            } else {
+                fresh.add(book);
+            }
+        }
+        return new Result(fresh, matched);
+    }
+
+    /**
+     * Id of the catalog book that {@code book} duplicates, used after an insert lost a race with a concurrent ingest.
+     */
+    public Optional<Long> findExisting(Book book) {
+        Result result = againstCatalog(List.of(book));
+        return result.matched().stream().map(Match::existingId).findFirst();
+    }
+
+    /**
+     * Fills the normalized title, author and category keys of rows written before those columns existed, so they
+     * take part in duplicate detection and database filtering.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSearchKeys() {
+        int updated = 0;
+        int batch;
+        do {
+            batch = Objects.requireNonNull(transactionTemplate.execute(status -> {
+                List<Book> books = bookRepository.findWithoutSearchKeys(PageRequest.of(0, chunkSize));
+                books.forEach(Book::normalizeKeys);
+                return books.size();
+            }));
+            updated += batch;
+        } while (batch == chunkSize);
+        if (updated > 0) {
+            log.info("Backfilled search keys for {} books", updated);
+        }
+    }
+
+    private static Map<String, Long> toMap(List<Object[]> rows) {
+        Map<String, Long> map = new HashMap<>();
+        for (Object[] row : rows) {
+            map.putIfAbsent((String) row[1], (Long) row[0]);
+        }
+        return map;
+    }
+}
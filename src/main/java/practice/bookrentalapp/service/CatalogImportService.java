@@ -0,0 +1,218 @@
+package practice.bookrentalapp.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import practice.bookrentalapp.model.dto.request.CatalogImportRequest;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse.VolumeInfo;
+import practice.bookrentalapp.model.entities.Book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Imports books from a server-local JSON-lines or CSV file of Google Books volume data without calling the API.
+ * The file is streamed line by line and saved in chunks through {@link BookService#saveBooksBatch}, which
+ * deduplicates each chunk within itself and against the catalog, so memory is bounded by the chunk size rather
+ * than the file size.
+ */
+@Service
+@Slf4j
+public class CatalogImportService {
+    private final BookService bookService;
+    private final VolumeInfoConverter volumeInfoConverter;
+    private final IngestionJobRegistry jobRegistry;
+    private final ExecutorService executorService;
+    private final ObjectReader volumeReader;
+
+    @Value("${catalog.import.dir:}")
+    private String importDir;
+
+    @Value("${catalog.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Autowired
+    public CatalogImportService(BookService bookService, VolumeInfoConverter volumeInfoConverter,
+                                IngestionJobRegistry jobRegistry, ExecutorService executorService,
+                                ObjectMapper objectMapper) {
+        this.bookService = bookService;
+        this.volumeInfoConverter = volumeInfoConverter;
+        this.jobRegistry = jobRegistry;
+        this.executorService = executorService;
+        this.volumeReader = objectMapper.readerFor(VolumeInfo.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    public IngestionJob startImport(CatalogImportRequest request) throws BadRequestException {
+        Path file = resolveImportFile(request.getFile());
+        IngestionJob job = jobRegistry.register(file.getFileName().toString());
+        log.info("Starting catalog import {} from {}", job.getId(), file);
+        executorService.submit(() -> runImport(job, file, request.getFormat(), request.getCopies()));
+        return job;
+    }
+
+    private Path resolveImportFile(String name) throws BadRequestException {
+        if (!StringUtils.hasText(importDir)) {
+            throw new BadRequestException("Catalog imports are disabled, catalog.import.dir is not configured");
+        }
+        Path base = Path.of(importDir).toAbsolutePath().normalize();
+        Path file = base.resolve(name).normalize();
+        if (!file.startsWith(base) || !Files.isRegularFile(file)) {
+            throw new BadRequestException("Import file not found: " + name);
+        }
+        return file;
+    }
+
+    private void runImport(IngestionJob job, Path file, String format, Integer copies) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Function<String, VolumeInfo> parser = "csv".equals(format)
+                    ? csvParser(reader.readLine())
+                    : this::parseJsonLine;
+            List<Book> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                job.getRead().incrementAndGet();
+                Book book;
+                try {
+                    book = volumeInfoConverter.convert(parser.apply(line), copies);
+                } catch (RuntimeException e) {
+                    log.debug("Unparseable import line {}: {}", job.getRead().get(), e.getMessage());
+                    job.getFailed().incrementAndGet();
+                    continue;
+                }
+                if (book == null || !StringUtils.hasText(book.getTitle())) {
+                    job.getSkipped().incrementAndGet();
+                    continue;
+                }
+                chunk.add(book);
+                if (chunk.size() >= chunkSize) {
+                    saveChunk(job, chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                saveChunk(job, chunk);
+            }
+            job.complete();
+            log.info("Catalog import {} finished: {}", job.getId(), job.toResponse());
+        } catch (IOException | RuntimeException e) {
+            log.error("Catalog import {} failed: {}", job.getId(), e.getMessage(), e);
+            job.fail(e.getMessage());
+        }
+    }
+
+    private void saveChunk(IngestionJob job, List<Book> chunk) {
+        try {
+            BookService.IngestResult result = bookService.saveBooksBatch(chunk);
+            job.getSaved().addAndGet(result.saved().size());
+            job.getDuplicates().addAndGet(result.duplicates() + result.matched().size());
+        } catch (RuntimeException e) {
+            log.error("Failed to save import chunk of {} books: {}", chunk.size(), e.getMessage());
+            job.getFailed().addAndGet(chunk.size());
+        }
+    }
+
+    private VolumeInfo parseJsonLine(String line) {
+        try {
+            JsonNode node = volumeReader.readTree(line);
+            // Accept both bare volumeInfo objects and API items wrapping one
+            if (node.has("volumeInfo")) {
+                node = node.get("volumeInfo");
+            }
+            return volumeReader.treeToValue(node, VolumeInfo.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON line", e);
+        }
+    }
+
+    /**
+     * CSV columns are matched by header name: title, authors, publisher, publishedDate, isbn13, pageCount,
+     * printType, categories, averageRating and language. Authors and categories are separated by semicolons.
+     */
+    private Function<String, VolumeInfo> csvParser(String headerLine) {
+        if (headerLine == null) {
+            return line -> null;
+        }
+        List<String> header = parseCsvLine(headerLine);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        return line -> {
+            List<String> values = parseCsvLine(line);
+            Function<String, String> column = name -> {
+                Integer index = columns.get(name);
+                return index != null && index < values.size() && !values.get(index).isEmpty() ? values.get(index) : null;
+            };
+            VolumeInfo volumeInfo = new VolumeInfo();
+            volumeInfo.setTitle(column.apply("title"));
+            volumeInfo.setAuthors(splitList(column.apply("authors")));
+            volumeInfo.setPublisher(column.apply("publisher"));
+            volumeInfo.setPublishedDate(column.apply("publishedDate"));
+            volumeInfo.setPrintType(column.apply("printType"));
+            volumeInfo.setCategories(splitList(column.apply("categories")));
+            volumeInfo.setLanguage(column.apply("language"));
+            Optional.ofNullable(column.apply("pageCount")).map(Integer::parseInt).ifPresent(volumeInfo::setPageCount);
+            Optional.ofNullable(column.apply("averageRating")).map(Double::parseDouble).ifPresent(volumeInfo::setAverageRating);
+            Optional.ofNullable(column.apply("isbn13")).ifPresent(isbn -> {
+                VolumeInfo.IndustryIdentifier identifier = new VolumeInfo.IndustryIdentifier();
+                identifier.setType("ISBN_13");
+                identifier.setIdentifier(isbn);
+                volumeInfo.setIndustryIdentifiers(List.of(identifier));
+            });
+            return volumeInfo;
+        };
+    }
+
+    private static List<String> splitList(String value) {
+        if (value == null) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(";")).map(String::trim).filter(item -> !item.isEmpty()).toList();
+    }
+
+    // Quoted fields may contain commas and doubled quotes, but not line breaks
+    private static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
@@ -0,0 +1,247 @@
+package practice.bookrentalapp.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse.VolumeInfo;
+import practice.bookrentalapp.model.entities.Book;
+import practice.bookrentalapp.model.events.CatalogChangedEvent;
+import practice.bookrentalapp.repositories.BookRepository;
+import practice.bookrentalapp.search.BookSnapshot;
+import practice.bookrentalapp.utils.TokenBucket;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Keeps ratings, page counts and categories of ingested books in line with Google Books. Each run revisits books
+ * by ISBN, most rented first and then the longest unchecked, until the hourly lookup budget is spent. Lookups
+ * send the ETag from the previous check, so unchanged volumes come back as 304 without a body. Only books whose
+ * fields actually changed are rewritten, in one transaction per batch; the rest just get a new check time and
+ * ETag. Each batch is written with one UPDATE that sets only the metadata columns, never the copy counts.
+ */
+@Component
+@Slf4j
+public class CatalogMetadataRefresher {
+    private final BookRepository bookRepository;
+    private final GoogleBooksClient googleBooksClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final TokenBucket budget;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${catalog.refresh.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalog.refresh.batch-size:50}")
+    private int batchSize;
+
+    @Value("${catalog.refresh.min-age:7d}")
+    private Duration minAge;
+
+    private record Fetched(Long bookId, VolumeInfo volumeInfo, String etag) {
+    }
+
+    // Column values one batch writes, by book id; a null ETag keeps the stored one
+    private static final class BatchUpdate {
+        private final Map<Long, String> etags = new LinkedHashMap<>();
+        private final Map<Long, Double> averageRatings = new HashMap<>();
+        private final Map<Long, Integer> pageCounts = new HashMap<>();
+        private final Map<Long, String> categoryKeys = new HashMap<>();
+        private final Set<Long> changed = new LinkedHashSet<>();
+    }
+
+    @Autowired
+    public CatalogMetadataRefresher(BookRepository bookRepository, GoogleBooksClient googleBooksClient,
+                                    ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${catalog.refresh.budget-per-hour:200}") int budgetPerHour) {
+        this.bookRepository = bookRepository;
+        this.googleBooksClient = googleBooksClient;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.budget = new TokenBucket(budgetPerHour, budgetPerHour, Duration.ofHours(1));
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.refresh.interval:PT15M}", initialDelayString = "${catalog.refresh.interval:PT15M}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        int checked = 0;
+        boolean more = true;
+        while (more && budget.availableTokens() >= 1) {
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> candidates = bookRepository.findMetadataRefreshCandidates(now.minus(minAge),
+                    PageRequest.of(0, batchSize));
+            if (candidates.isEmpty()) {
+                break;
+            }
+            List<Long> unchanged = new ArrayList<>();
+            List<Fetched> fetched = new ArrayList<>();
+            more = candidates.size() == batchSize;
+            for (Object[] row : candidates) {
+                if (!budget.tryAcquire()) {
+                    more = false;
+                    break;
+                }
+                Long bookId = (Long) row[0];
+                GoogleBooksClient.VolumeLookup lookup;
+                try {
+                    lookup = googleBooksClient.lookupByIsbn((String) row[1], (String) row[2]);
+                } catch (RestClientException e) {
+                    log.warn("Metadata refresh stopped, lookup of book {} failed: {}", bookId, e.getMessage());
+                    count("failed");
+                    more = false;
+                    break;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    more = false;
+                    break;
+                }
+                if (lookup.notModified()) {
+                    count("not-modified");
+                    unchanged.add(bookId);
+                } else if (lookup.volumeInfo() == null) {
+                    count("not-found");
+                    unchanged.add(bookId);
+                } else {
+                    fetched.add(new Fetched(bookId, lookup.volumeInfo(), lookup.etag()));
+                }
+            }
+            apply(unchanged, fetched, now);
+            checked += unchanged.size() + fetched.size();
+        }
+        if (checked > 0) {
+            log.info("Metadata refresh checked {} books", checked);
+        }
+    }
+
+    private void apply(List<Long> unchanged, List<Fetched> fetched, LocalDateTime now) {
+        if (unchanged.isEmpty() && fetched.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            BatchUpdate batch = new BatchUpdate();
+            unchanged.forEach(id -> batch.etags.put(id, null));
+            Map<Long, Book> books = new HashMap<>();
+            bookRepository.findAllById(fetched.stream().map(Fetched::bookId).toList())
+                    .forEach(book -> books.put(book.getId(), book));
+            for (Fetched entry : fetched) {
+                Book book = books.get(entry.bookId());
+                if (book == null) {
+                    continue;
+                }
+                batch.etags.put(book.getId(), entry.etag());
+                if (collectChanges(book, entry.volumeInfo(), batch)) {
+                    batch.changed.add(book.getId());
+                    count("changed");
+                } else {
+                    count("unchanged");
+                }
+            }
+            write(batch, now);
+            if (!batch.changed.isEmpty()) {
+                // Category rows go out with this flush; the books are then read back with the written columns
+                entityManager.flush();
+                entityManager.clear();
+                List<BookSnapshot> snapshots = bookRepository.findAllById(batch.changed).stream()
+                        .map(BookSnapshot::from)
+                        .toList();
+                eventPublisher.publishEvent(CatalogChangedEvent.upserted(snapshots));
+            }
+        });
+    }
+
+    /**
+     * Records the refreshable fields the API returned that differ from {@code book} and reports whether there were
+     * any. Fields the API leaves out (zero or empty) keep their current value. Scalar fields are only recorded in
+     * {@code batch}; the book itself is left clean, so flushing it never rewrites its row.
+     */
+    private boolean collectChanges(Book book, VolumeInfo volumeInfo, BatchUpdate batch) {
+        boolean changed = false;
+        if (volumeInfo.getAverageRating() > 0 && !Objects.equals(book.getAverageRating(), volumeInfo.getAverageRating())) {
+            batch.averageRatings.put(book.getId(), volumeInfo.getAverageRating());
+            changed = true;
+        }
+        if (volumeInfo.getPageCount() > 0 && !Objects.equals(book.getPageCount(), volumeInfo.getPageCount())) {
+            batch.pageCounts.put(book.getId(), volumeInfo.getPageCount());
+            changed = true;
+        }
+        if (volumeInfo.getCategories() != null && !volumeInfo.getCategories().isEmpty()) {
+            Set<String> categories = new HashSet<>(volumeInfo.getCategories());
+            if (!categories.equals(book.getCategories())) {
+                // Edited in place: a collection change writes only category rows, never the owning book row
+                book.getCategories().clear();
+                book.getCategories().addAll(categories);
+                batch.categoryKeys.put(book.getId(), Book.categoryKey(categories));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Writes a whole batch in a single UPDATE: every checked book gets the check time, its new ETag where the
+     * lookup returned one, and changed books get their refreshed fields and a new {@code updatedAt}. Only those
+     * columns are set, so copies reserved or returned while the batch ran are never overwritten.
+     */
+    private void write(BatchUpdate batch, LocalDateTime now) {
+        if (batch.etags.isEmpty()) {
+            return;
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Book> update = cb.createCriteriaUpdate(Book.class);
+        Root<Book> book = update.from(Book.class);
+        update.set(book.<LocalDateTime>get("metadataCheckedAt"), now);
+        setPerBook(cb, update, book, "metadataEtag", batch.etags);
+        setPerBook(cb, update, book, "averageRating", batch.averageRatings);
+        setPerBook(cb, update, book, "pageCount", batch.pageCounts);
+        setPerBook(cb, update, book, "categoryKey", batch.categoryKeys);
+        if (!batch.changed.isEmpty()) {
+            update.set(book.<LocalDateTime>get("updatedAt"), cb.<LocalDateTime>selectCase()
+                    .when(book.get("id").in(batch.changed), now)
+                    .otherwise(book.<LocalDateTime>get("updatedAt")));
+        }
+        update.where(book.get("id").in(batch.etags.keySet()));
+        entityManager.createQuery(update).executeUpdate();
+    }
+
+    // Sets the attribute to the given value for the listed books and leaves it as it is for the rest
+    private static <T> void setPerBook(CriteriaBuilder cb, CriteriaUpdate<Book> update, Root<Book> book,
+                                       String attribute, Map<Long, T> values) {
+        CriteriaBuilder.SimpleCase<Long, T> value = cb.selectCase(book.<Long>get("id"));
+        boolean any = false;
+        for (Map.Entry<Long, T> entry : values.entrySet()) {
+            if (entry.getValue() != null) {
+                value.when(entry.getKey(), entry.getValue());
+                any = true;
+            }
+        }
+        if (any) {
+            update.set(book.<T>get(attribute), value.otherwise(book.<T>get(attribute)));
+        }
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("catalog.refresh.lookups", "outcome", outcome).increment();
+    }
+}
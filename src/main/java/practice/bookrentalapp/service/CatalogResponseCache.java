@@ -0,0 +1,146 @@
+package practice.bookrentalapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import practice.bookrentalapp.model.dto.request.BookFilter;
+import practice.bookrentalapp.model.events.CatalogChangedEvent;
+import practice.bookrentalapp.search.BookSnapshot;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches catalog responses by book id and by normalized {@link BookFilter}, each with a strong ETag.
+ * Book ETags come from the row's {@code updatedAt}; listing ETags from a catalog version that is bumped on
+ * every {@link CatalogChangedEvent}, so a changed book evicts only its own entry but every cached listing.
+ * The version restarts with each JVM, so listing ETags also carry a random per-boot tag: a client revalidating
+ * against a restarted or different instance gets a fresh body instead of a stale 304.
+ */
+@Component
+@Slf4j
+public class CatalogResponseCache {
+    public record Entry<T>(T body, String etag) {
+    }
+
+    @FunctionalInterface
+    public interface ListingLoader<T> {
+        T load() throws BadRequestException;
+    }
+
+    private final String bootTag = Long.toHexString(new SecureRandom().nextLong());
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final Cache<Long, Entry<?>> books;
+    private final Cache<String, Entry<?>> listings;
+
+    @Autowired
+    public CatalogResponseCache(MeterRegistry meterRegistry,
+                                @Value("${catalog.cache.max-size:10000}") long maxSize,
+                                @Value("${catalog.cache.ttl:10m}") Duration ttl) {
+        this.books = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.listings = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, books, "catalogBooks");
+        CaffeineCacheMetrics.monitor(meterRegistry, listings, "catalogListings");
+    }
+
+    public static String bookEtag(Long id, LocalDateTime updatedAt) {
+        String revision = updatedAt == null ? "0"
+                : Long.toHexString(updatedAt.toEpochSecond(ZoneOffset.UTC)) + "." + Integer.toHexString(updatedAt.getNano());
+        return "\"b" + id + "-" + revision + "\"";
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Entry<T> getBook(Long id, Supplier<Entry<T>> loader) {
+        Entry<?> cached = books.getIfPresent(id);
+        if (cached != null) {
+            return (Entry<T>) cached;
+        }
+        long version = catalogVersion.get();
+        Entry<T> loaded = loader.get();
+        putIfCurrent(version, () -> books.put(id, loaded));
+        return loaded;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Entry<T> getListing(BookFilter filter, ListingLoader<T> loader) throws BadRequestException {
+        String key = keyOf(filter);
+        Entry<?> cached = listings.getIfPresent(key);
+        if (cached != null) {
+            return (Entry<T>) cached;
+        }
+        long version = catalogVersion.get();
+        Entry<T> loaded = new Entry<>(loader.load(), "\"c" + bootTag + "." + version + "-" + Integer.toHexString(key.hashCode()) + "\"");
+        putIfCurrent(version, () -> listings.put(key, loaded));
+        return loaded;
+    }
+
+    /**
+     * Runs after the search index has applied the same event, so a reload triggered by the eviction
+     * cannot read the index before it is current.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        catalogVersion.incrementAndGet();
+        books.invalidateAll(event.removed());
+        books.invalidateAll(event.upserted().stream().map(BookSnapshot::id).toList());
+        books.invalidateAll(event.inventory().stream().map(CatalogChangedEvent.InventoryChange::bookId).toList());
+        listings.invalidateAll();
+        log.debug("Catalog version is now {}", catalogVersion.get());
+    }
+
+    /**
+     * A load that overlapped a catalog change may have read the old state, so it is served but not cached.
+     */
+    private void putIfCurrent(long version, Runnable put) {
+        if (catalogVersion.get() == version) {
+            put.run();
+        }
+    }
+
+    static String keyOf(BookFilter filter) {
+        List<String> categories = filter.getCategories() == null ? List.of()
+                : filter.getCategories().stream().sorted().toList();
+        return String.join("|",
+                lower(filter.getTitle()),
+                lower(filter.getAuthor()),
+                String.valueOf(filter.getIsbn()),
+                String.valueOf(filter.getAvailable()),
+                String.join(",", categories),
+                String.valueOf(filter.getRatingGreaterThan()),
+                String.valueOf(filter.getPage()),
+                String.valueOf(filter.getSize()),
+                String.valueOf(filter.getOrderBy()),
+                String.valueOf(filter.getDir()),
+                String.valueOf(filter.getSeek()),
+                String.valueOf(filter.getCursor()),
+                String.valueOf(filter.getIncludeTotal()));
+    }
+
+    private static String lower(String value) {
+        return value == null ? "null" : value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,131 +1,202 @@
 package practice.bookrentalapp.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 import practice.bookrentalapp.model.dto.request.BookSearchRequest;
 import practice.bookrentalapp.model.dto.request.BookSearchRequest.SearchGroup;
 import practice.bookrentalapp.model.dto.response.GoogleBooksResponse;
 import practice.bookrentalapp.model.entities.Book;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+/**
+ * Runs Google Books ingestion as background jobs. Each job is a bounded pipeline: one producer per search group
+ * fetches and converts pages, a bounded queue hands them to a single consumer, and the consumer deduplicates and
+ * saves them in chunks. Producers block when the queue is full, so fetching never runs ahead of saving by more
+ * than the queue capacity.
+ */
 @Service
 @Slf4j
 public class GoogleBooksApiService {
+    // Marks the end of a job's page stream; compared by identity
+    private static final List<Book> END_OF_PAGES = new ArrayList<>();
+
     private final BookService bookService;
-    private final RestTemplate restTemplate;
+    private final GoogleBooksClient googleBooksClient;
     private final ExecutorService executorService;
+    private final VolumeInfoConverter volumeInfoConverter;
+    private final IngestionJobRegistry jobRegistry;
+
+    @Value("${google.books.group-concurrency:4}")
+    private int groupConcurrency;
 
-    private final Integer PAGE_SIZE = 40;
-    private Integer copies;
+    @Value("${google.books.ingest.queue-capacity:16}")
+    private int queueCapacity;
 
-    @Value("${google.books.api.key}")
-    private String apiKey;
+    @Value("${catalog.dedup.chunk-size:500}")
+    private int chunkSize;
 
     @Autowired
-    public GoogleBooksApiService(BookService service, RestTemplate restTemplate, ExecutorService executorService) {
+    public GoogleBooksApiService(BookService service, GoogleBooksClient googleBooksClient, ExecutorService executorService,
+                                 VolumeInfoConverter volumeInfoConverter, IngestionJobRegistry jobRegistry) {
         this.bookService = service;
-        this.restTemplate = restTemplate;
+        this.googleBooksClient = googleBooksClient;
         this.executorService = executorService;
+        this.volumeInfoConverter = volumeInfoConverter;
+        this.jobRegistry = jobRegistry;
     }
 
-    public List<Long> fetchAndSaveBooks(BookSearchRequest requestDto) {
-        log.debug("fetchAndSaveBooks called with requestDto: {}", requestDto);
-        copies = requestDto.getCopies();
-        try {
-            List<Future<List<Book>>> futures = requestDto.getSearchGroups().stream()
-                    .map(group ->  {
-                        log.debug("Submitting search task for group: {}", group);
-                        return executorService.submit(() -> processSearchGroup(group));
-                    })
-                    .toList();
-            List<Book> allBooks = new ArrayList<>();
-            for(Future<List<Book>> future : futures) {
-                allBooks.addAll(future.get());
-            }
-            List<Long> savedBookIds = bookService.saveBooksBatch(allBooks).stream()
-                    .map(Book::getId)
-                    .collect(Collectors.toList());
-            log.info("Saved books with IDs: {}", savedBookIds);
-            return savedBookIds;
-        } catch (Exception e) {
-            log.error("Error processing request {}", e.getMessage());
-            return Collections.emptyList();
+    @PostConstruct
+    void validateSettings() {
+        // A window of zero pages would never submit a fetch and then wait on an empty deque
+        if (groupConcurrency < 1) {
+            throw new IllegalArgumentException("google.books.group-concurrency must be at least 1, was " + groupConcurrency);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("google.books.ingest.queue-capacity must be at least 1, was " + queueCapacity);
         }
     }
 
-    private List<Book> processSearchGroup(SearchGroup group) {
+    public IngestionJob startIngestion(BookSearchRequest requestDto) {
+        log.debug("startIngestion called with requestDto: {}", requestDto);
+        IngestionJob job = jobRegistry.register("Google Books (" + requestDto.getSearchGroups().size() + " search groups)");
+        executorService.submit(() -> runIngestion(job, requestDto.getSearchGroups(), requestDto.getCopies()));
+        return job;
+    }
+
+    private void runIngestion(IngestionJob job, List<SearchGroup> searchGroups, Integer copies) {
+        BlockingQueue<List<Book>> pages = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger remainingProducers = new AtomicInteger(searchGroups.size());
+        List<Future<?>> producers = new ArrayList<>();
         try {
-            List<Book> books = searchGoogleBooks(group);
-            return filterUniqueBooks(books);
-        } catch (Exception e) {
-            log.error("Error processing search group {}: {}", group, e.getMessage());
-            return Collections.emptyList();
+            for (SearchGroup group : searchGroups) {
+                log.debug("Submitting search task for group: {}", group);
+                producers.add(executorService.submit(() -> {
+                    try {
+                        produce(job, group, copies, pages);
+                    } finally {
+                        if (remainingProducers.decrementAndGet() == 0) {
+                            signalEnd(pages);
+                        }
+                    }
+                }));
+            }
+            List<Book> chunk = new ArrayList<>(chunkSize);
+            List<Book> page;
+            while ((page = pages.take()) != END_OF_PAGES) {
+                chunk.addAll(page);
+                if (chunk.size() >= chunkSize) {
+                    saveChunk(job, chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                saveChunk(job, chunk);
+            }
+            job.complete();
+            log.info("Google Books ingestion {} finished: {}", job.getId(), job.toResponse());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            producers.forEach(producer -> producer.cancel(true));
+            job.fail("Ingestion was interrupted");
+        } catch (RuntimeException e) {
+            log.error("Google Books ingestion {} failed: {}", job.getId(), e.getMessage(), e);
+            producers.forEach(producer -> producer.cancel(true));
+            job.fail(e.getMessage());
         }
     }
 
-    private List<Book> searchGoogleBooks(SearchGroup searchGroup) {
-        List<Book> allBooks = new ArrayList<>();
-        int startIndex = 0;
-        Integer totalItems = null;
+    /**
+     * Fetches every page of one search group. After the first page reveals {@code totalItems}, up to
+     * {@code groupConcurrency} pages are in flight at once, and pages are handed on in start-index order.
+     */
+    private void produce(IngestionJob job, SearchGroup group, Integer copies, BlockingQueue<List<Book>> pages) {
+        Deque<Future<GoogleBooksResponse>> inFlight = new ArrayDeque<>();
         try {
-            do {
-                String url = getGoogleBooksApiUrl(searchGroup, startIndex);
-                log.debug("Fetching books from URL: {}", url);
-                ResponseEntity<GoogleBooksResponse> response = restTemplate.getForEntity(url, GoogleBooksResponse.class);
-                GoogleBooksResponse responseBody = response.getBody();
-
-                if (responseBody == null || responseBody.getItems() == null) {
-                    log.warn("No items found in response for URL: {}", url);
-                    break;
+            GoogleBooksResponse firstPage = fetchPage(job, group, 0);
+            if (firstPage == null) {
+                return;
+            }
+            pages.put(toBooks(job, firstPage, copies));
+            int nextStart = GoogleBooksClient.PAGE_SIZE;
+            while (nextStart < firstPage.getTotalItems() || !inFlight.isEmpty()) {
+                while (nextStart < firstPage.getTotalItems() && inFlight.size() < groupConcurrency) {
+                    int pageStart = nextStart;
+                    inFlight.add(executorService.submit(() -> fetchPage(job, group, pageStart)));
+                    nextStart += GoogleBooksClient.PAGE_SIZE;
                 }
-                if (totalItems == null) {
-                    totalItems = responseBody.getTotalItems();
+                GoogleBooksResponse response = inFlight.poll().get();
+                if (response != null) {
+                    pages.put(toBooks(job, response, copies));
                 }
-                allBooks.addAll(
-                        responseBody.getItems().stream()
-                                .map(this::convertToBook)
-                                .filter(Objects::nonNull)
-                                .toList()
-                );
-                startIndex += PAGE_SIZE;
-            } while (startIndex < totalItems);
-        } catch (RestClientException e) {
-            log.error("Error searching Google Books: {}", e.getMessage(), e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            log.error("Error processing search group {}: {}", group, e.getMessage(), e);
+            job.getPagesFailed().incrementAndGet();
+        } finally {
+            inFlight.forEach(page -> page.cancel(true));
         }
-        return allBooks;
     }
 
-    private String getGoogleBooksApiUrl(BookSearchRequest.SearchGroup searchGroup, int startIndex) {
-        StringBuilder query = new StringBuilder();
-        appendIfPresent(query, "inauthor", searchGroup.getAuthor());
-        appendIfPresent(query, "intitle", searchGroup.getTitle());
-        appendIfPresent(query, "subject", searchGroup.getCategory());
-        appendIfPresent(query, "isbn", searchGroup.getIsbn());
-
-        return String.format("https://www.googleapis.com/books/v1/volumes?q=%s&orderBy=newest&startIndex=%d&maxResults=%d&key=%s",
-                query.toString().trim(),
-                startIndex,
-                PAGE_SIZE,
-                apiKey);
+    private GoogleBooksResponse fetchPage(IngestionJob job, SearchGroup group, int startIndex) throws InterruptedException {
+        try {
+            GoogleBooksResponse page = googleBooksClient.fetchPage(group, startIndex);
+            job.getPagesFetched().incrementAndGet();
+            return page;
+        } catch (RestClientException e) {
+            log.error("Error fetching page {} of group {}: {}", startIndex, group, e.getMessage());
+            job.getPagesFailed().incrementAndGet();
+            return null;
+        }
     }
 
-    private void appendIfPresent(StringBuilder query, String key, String value) {
-        if (value != null && !value.isEmpty()) {
-            if (!query.isEmpty()) {
-                query.append("+");
+    private List<Book> toBooks(IngestionJob job, GoogleBooksResponse response, Integer copies) {
+        List<Book> books = new ArrayList<>();
+        job.getRead().addAndGet(response.getFilteredItems());
+        job.getSkipped().addAndGet(response.getFilteredItems());
+        for (GoogleBooksResponse.Item item : response.getItems()) {
+            job.getRead().incrementAndGet();
+            Book book = volumeInfoConverter.convert(item.getVolumeInfo(), copies);
+            if (book == null || book.getTitle() == null) {
+                job.getSkipped().incrementAndGet();
+            } else {
+                books.add(book);
             }
-            query.append(key).append(":").append(value);
+        }
+        List<Book> unique = filterUniqueBooks(books);
+        job.getDuplicates().addAndGet(books.size() - unique.size());
+        return unique;
+    }
+
+    private void saveChunk(IngestionJob job, List<Book> chunk) {
+        try {
+            BookService.IngestResult result = bookService.saveBooksBatch(chunk);
+            job.getSaved().addAndGet(result.saved().size());
+            job.getDuplicates().addAndGet(result.duplicates() + result.matched().size());
+            result.matched().forEach(match ->
+                    log.debug("Skipped '{}', already in catalog as book {}", match.incoming().getTitle(), match.existingId()));
+        } catch (RuntimeException e) {
+            log.error("Failed to save chunk of {} books: {}", chunk.size(), e.getMessage());
+            job.getFailed().addAndGet(chunk.size());
+        }
+    }
+
+    private static void signalEnd(BlockingQueue<List<Book>> pages) {
+        try {
+            pages.put(END_OF_PAGES);
+        } catch (InterruptedException e) {
+            // Only cancelled producers are interrupted, and then nobody is consuming any more
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -134,6 +205,8 @@ public class GoogleBooksApiService {
         List<Book> uniqueBooks = books.stream()
                 .collect(Collectors.groupingBy(
                         Book::getTitle,
+                        // Keeps the page order, so saved books (and their ids) follow the API's order
+                        LinkedHashMap::new,
                         Collectors.maxBy(Comparator.comparing(
                                 book -> book.getPublishedDate() != null ? book.getPublishedDate() : LocalDate.MIN
                         ))
@@ -146,54 +219,4 @@ public class GoogleBooksApiService {
         log.debug("Found {} unique books", uniqueBooks.size());
         return uniqueBooks;
     }
-
-    private Book convertToBook(GoogleBooksResponse.Item item) {
-        GoogleBooksResponse.VolumeInfo volumeInfo = item.getVolumeInfo();
-        if (volumeInfo == null || !"en".equals(volumeInfo.getLanguage()) || !"BOOK".equals(volumeInfo.getPrintType())) {
-            log.debug("Skipping item due to invalid/irrelevant volume info: {}", volumeInfo);
-            return null;
-        }
-        Book book = new Book();
-        book.setTotalCopies(copies);
-        book.setTitle(volumeInfo.getTitle());
-        book.setPageCount(volumeInfo.getPageCount());
-        book.setLanguage("en");
-        book.setAverageRating(volumeInfo.getAverageRating());
-        book.setPublisher(volumeInfo.getPublisher());
-        book.setAuthors(new HashSet<>(volumeInfo.getAuthors() != null ? volumeInfo.getAuthors() : Collections.emptyList()));
-        book.setCategories(new HashSet<>(volumeInfo.getCategories() != null ? volumeInfo.getCategories() : Collections.emptyList()));
-        book.setPublishedDate(parsePublishedDate(volumeInfo.getPublishedDate()));
-        setISBNIfPresent(volumeInfo, book);
-        log.debug("Converted item to book: {}", book);
-        return book;
-    }
-
-    private void setISBNIfPresent(GoogleBooksResponse.VolumeInfo volumeInfo, Book book) {
-        if(volumeInfo.getIndustryIdentifiers() == null) {
-            return;
-        }
-        for (GoogleBooksResponse.VolumeInfo.IndustryIdentifier identifier : volumeInfo.getIndustryIdentifiers()) {
-            if ("ISBN_13".equalsIgnoreCase(identifier.getType())) {
-                book.setISBN(identifier.getIdentifier());
-                break;
-            }
-        }
-    }
-    private LocalDate parsePublishedDate(String dateStr) {
-        if (dateStr == null || dateStr.isEmpty()) {
-            return null;
-        }
-        try {
-            return switch (dateStr.length()) {
-                case 10 -> LocalDate.parse(dateStr);
-                case 7 -> LocalDate.parse(dateStr + "-01");
-                case 4 -> LocalDate.parse(dateStr + "-01-01");
-                default -> null;
-            };
-        } catch (DateTimeParseException e) {
-            log.warn("Unable to parse published date: {}", dateStr);
-            return null;
-        }
-    }
 }
-
@@ -0,0 +1,333 @@
+package practice.bookrentalapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import practice.bookrentalapp.model.dto.request.BookSearchRequest.SearchGroup;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse.VolumeInfo;
+import practice.bookrentalapp.utils.CircuitBreaker;
+import practice.bookrentalapp.utils.TokenBucket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Fetches Google Books volume search pages, serving repeats from the {@link GoogleBooksPageCache}. Remote calls
+ * from all callers share one token-bucket rate limit and a cap on concurrent requests. Throttled (429), server
+ * error (5xx) and I/O failures are retried with jittered exponential backoff, and a circuit breaker fails calls
+ * fast while the API keeps failing. Malformed response bodies are not retried.
+ */
+@Component
+@Slf4j
+public class GoogleBooksClient {
+    public static final int PAGE_SIZE = 40;
+    // Partial response: only the volume fields VolumeInfoConverter maps
+    private static final String FIELDS = "totalItems,items(volumeInfo(title,authors,publisher,publishedDate,"
+            + "industryIdentifiers,pageCount,printType,categories,averageRating,maturityRating,language))";
+
+    private final RestTemplate restTemplate;
+    private final GoogleBooksPageCache pageCache;
+    private final GoogleBooksPageParser pageParser;
+    private final Semaphore permits;
+    private final TokenBucket rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Timer requestTimer;
+    private final Timer throttleTimer;
+    private final Counter retries;
+    private final Counter failures;
+    private final Counter rejections;
+
+    @Value("${google.books.api.key}")
+    private String apiKey;
+
+    @Value("${google.books.api.base-url:https://www.googleapis.com/books/v1}")
+    private String baseUrl;
+
+    @Autowired
+    public GoogleBooksClient(RestTemplate restTemplate, GoogleBooksPageCache pageCache, GoogleBooksPageParser pageParser,
+                             MeterRegistry meterRegistry,
+                             @Value("${google.books.max-concurrent-requests:8}") int maxConcurrentRequests,
+                             @Value("${google.books.rate-limit.requests:10}") int rateLimitRequests,
+                             @Value("${google.books.rate-limit.period:1s}") Duration rateLimitPeriod,
+                             @Value("${google.books.retry.max-attempts:4}") int maxAttempts,
+                             @Value("${google.books.retry.initial-backoff:500ms}") Duration initialBackoff,
+                             @Value("${google.books.retry.max-backoff:10s}") Duration maxBackoff,
+                             @Value("${google.books.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                             @Value("${google.books.circuit-breaker.open-duration:30s}") Duration openDuration) {
+        this.restTemplate = restTemplate;
+        this.pageCache = pageCache;
+        this.pageParser = pageParser;
+        this.permits = new Semaphore(maxConcurrentRequests);
+        this.rateLimiter = new TokenBucket(rateLimitRequests, rateLimitRequests, rateLimitPeriod);
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDuration);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.requestTimer = Timer.builder("google.books.requests").register(meterRegistry);
+        this.throttleTimer = Timer.builder("google.books.rate-limit.wait").register(meterRegistry);
+        this.retries = Counter.builder("google.books.retries").register(meterRegistry);
+        this.failures = Counter.builder("google.books.failures").register(meterRegistry);
+        this.rejections = Counter.builder("google.books.circuit-breaker.rejections").register(meterRegistry);
+        Gauge.builder("google.books.circuit-breaker.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the page starting at {@code startIndex}, or {@code null} if the page is empty.
+     *
+     * @throws RestClientException if the remote request failed after retries or the circuit is open
+     */
+    public GoogleBooksResponse fetchPage(SearchGroup searchGroup, int startIndex) throws InterruptedException {
+        String query = buildQuery(searchGroup);
+        GoogleBooksResponse page = pageCache.get(query, startIndex, PAGE_SIZE);
+        if (page == null) {
+            if (pageCache.isCacheOnly()) {
+                log.warn("Cache-only mode: no cached page for query {} at {}", query, startIndex);
+                return null;
+            }
+            page = fetchRemote(query, startIndex);
+            if (page == null) {
+                return null;
+            }
+            pageCache.put(query, startIndex, PAGE_SIZE, page);
+        }
+        if (page.getItems() == null) {
+            log.warn("No items found for query {} at {}", query, startIndex);
+            return null;
+        }
+        return page;
+    }
+
+    /**
+     * Looks up the volume with the given ISBN, sending {@code etag} as {@code If-None-Match} so an unchanged
+     * volume costs a 304 without a body. Never served from the page cache.
+     *
+     * @throws RestClientException if the remote request failed after retries or the circuit is open
+     */
+    public VolumeLookup lookupByIsbn(String isbn, String etag) throws InterruptedException {
+        String url = String.format("%s/volumes?q=isbn:%s&maxResults=1&fields=%s&key=%s", baseUrl, isbn, FIELDS, apiKey);
+        return callApi(url, "isbn:" + isbn,
+                request -> {
+                    acceptCompressedJson(request.getHeaders());
+                    if (etag != null) {
+                        request.getHeaders().setIfNoneMatch(etag);
+                    }
+                },
+                response -> {
+                    if (response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                        return new VolumeLookup(true, null, etag);
+                    }
+                    GoogleBooksResponse page = parse(response);
+                    VolumeInfo volumeInfo = page.getItems() == null || page.getItems().isEmpty()
+                            ? null : page.getItems().get(0).getVolumeInfo();
+                    return new VolumeLookup(false, volumeInfo, response.getHeaders().getETag());
+                });
+    }
+
+    /**
+     * Result of an ISBN lookup. {@code volumeInfo} is {@code null} when the volume is unchanged or was not found
+     * (or not admitted).
+     */
+    public record VolumeLookup(boolean notModified, VolumeInfo volumeInfo, String etag) {
+    }
+
+    private GoogleBooksResponse fetchRemote(String query, int startIndex) throws InterruptedException {
+        String url = String.format("%s/volumes?q=%s&orderBy=newest&startIndex=%d&maxResults=%d&fields=%s&key=%s",
+                baseUrl,
+                query,
+                startIndex,
+                PAGE_SIZE,
+                FIELDS,
+                apiKey);
+        return callApi(url, query + " at " + startIndex,
+                request -> acceptCompressedJson(request.getHeaders()),
+                this::parse);
+    }
+
+    private <T> T callApi(String url, String description, RequestCallback requestCallback,
+                          ResponseExtractor<T> responseExtractor) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                rejections.increment();
+                throw new RestClientException("Google Books circuit breaker is open, not calling the API");
+            }
+            Duration retryAfter;
+            boolean outcomeRecorded = false;
+            try {
+                T result = exchange(url, description, requestCallback, responseExtractor);
+                circuitBreaker.recordSuccess();
+                outcomeRecorded = true;
+                return result;
+            } catch (HttpStatusCodeException e) {
+                if (!isRetryable(e.getStatusCode().value())) {
+                    // The API answered; a bad request says nothing about its health
+                    circuitBreaker.recordSuccess();
+                    outcomeRecorded = true;
+                    failures.increment();
+                    throw e;
+                }
+                circuitBreaker.recordFailure();
+                outcomeRecorded = true;
+                retryAfter = parseRetryAfter(e.getResponseHeaders());
+                if (attempt >= maxAttempts) {
+                    failures.increment();
+                    throw e;
+                }
+                log.warn("Google Books returned {} for {}, attempt {}/{}",
+                        e.getStatusCode().value(), description, attempt, maxAttempts);
+            } catch (MalformedResponseException e) {
+                // The API answered, and asking again would return the same body
+                circuitBreaker.recordSuccess();
+                outcomeRecorded = true;
+                failures.increment();
+                throw e;
+            } catch (ResourceAccessException e) {
+                circuitBreaker.recordFailure();
+                outcomeRecorded = true;
+                retryAfter = null;
+                if (attempt >= maxAttempts) {
+                    failures.increment();
+                    throw e;
+                }
+                log.warn("Google Books I/O error for {}, attempt {}/{}: {}",
+                        description, attempt, maxAttempts, e.getMessage());
+            } catch (RestClientException e) {
+                // Anything else, e.g. an unrecognised status code; retrying would not help
+                circuitBreaker.recordFailure();
+                outcomeRecorded = true;
+                failures.increment();
+                throw e;
+            } finally {
+                // Interrupted, or an unexpected exception from handling the response: no outcome to report, but a
+                // half-open trial must not stay taken
+                if (!outcomeRecorded) {
+                    circuitBreaker.releasePermission();
+                }
+            }
+            retries.increment();
+            TimeUnit.MILLISECONDS.sleep(backoffMillis(attempt, retryAfter));
+        }
+    }
+
+    /**
+     * A response body that could not be parsed. Not retried: the API answered, and would answer the same again.
+     */
+    public static class MalformedResponseException extends RestClientException {
+        public MalformedResponseException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private <T> T exchange(String url, String description, RequestCallback requestCallback,
+                           ResponseExtractor<T> responseExtractor) throws InterruptedException {
+        throttleTimer.record(rateLimiter.acquire(), TimeUnit.NANOSECONDS);
+        permits.acquire();
+        try {
+            log.debug("Fetching Google Books {}", description);
+            return requestTimer.record(() -> restTemplate.execute(url, HttpMethod.GET, requestCallback, responseExtractor));
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Jackson reports malformed JSON as an IOException, which RestTemplate would wrap in a retryable
+     * {@link ResourceAccessException}; report it as a {@link MalformedResponseException} instead.
+     */
+    private GoogleBooksResponse parse(ClientHttpResponse response) throws IOException {
+        try {
+            return pageParser.parse(body(response));
+        } catch (JsonProcessingException e) {
+            throw new MalformedResponseException("Malformed Google Books response: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static void acceptCompressedJson(HttpHeaders headers) {
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    }
+
+    private static InputStream body(ClientHttpResponse response) throws IOException {
+        InputStream body = response.getBody();
+        if ("gzip".equalsIgnoreCase(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))) {
+            return new GZIPInputStream(body);
+        }
+        return body;
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == HttpStatus.TOO_MANY_REQUESTS.value() || status >= 500;
+    }
+
+    /**
+     * Full jitter: a uniform delay between zero and the exponential bound, so retrying callers spread out
+     * instead of hitting the API in lockstep. A Retry-After from the server is honoured as the minimum.
+     */
+    private long backoffMillis(int attempt, Duration retryAfter) {
+        long bound = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(bound + 1);
+        if (retryAfter != null) {
+            delay = Math.max(delay, Math.min(retryAfter.toMillis(), maxBackoff.toMillis()));
+        }
+        return delay;
+    }
+
+    private static Duration parseRetryAfter(HttpHeaders headers) {
+        String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            // HTTP-date form; fall back to the computed backoff
+            return null;
+        }
+    }
+
+    private String buildQuery(SearchGroup searchGroup) {
+        StringBuilder query = new StringBuilder();
+        appendIfPresent(query, "inauthor", searchGroup.getAuthor());
+        appendIfPresent(query, "intitle", searchGroup.getTitle());
+        appendIfPresent(query, "subject", searchGroup.getCategory());
+        appendIfPresent(query, "isbn", searchGroup.getIsbn());
+        return query.toString().trim();
+    }
+
+    private void appendIfPresent(StringBuilder query, String key, String value) {
+        if (value != null && !value.isEmpty()) {
+            if (!query.isEmpty()) {
+                query.append("+");
+            }
+            query.append(key).append(":").append(value);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package practice.bookrentalapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse;
+import practice.bookrentalapp.utils.TokenDigest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent cache of Google Books result pages, one gzip-compressed JSON file per normalized query and
+ * start index. The API key is not part of the key. Entries expire after a TTL, and the oldest files are evicted
+ * once the directory exceeds its size budget, so repeated ingests and restarts are served from local disk.
+ */
+@Component
+@Slf4j
+public class GoogleBooksPageCache {
+    private static final String SUFFIX = ".json.gz";
+
+    private final ObjectMapper objectMapper;
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    @Value("${google.books.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${google.books.cache.dir:${java.io.tmpdir}/book-rental-app/google-books}")
+    private Path directory;
+
+    @Value("${google.books.cache.ttl:7d}")
+    private Duration ttl;
+
+    @Value("${google.books.cache.max-size:256MB}")
+    private DataSize maxSize;
+
+    @Value("${google.books.cache.cache-only:false}")
+    private boolean cacheOnly;
+
+    @Autowired
+    public GoogleBooksPageCache(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.hits = Counter.builder("google.books.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("google.books.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("google.books.cache.size", totalBytes, AtomicLong::get).baseUnit("bytes").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        Instant cutoff = Instant.now().minus(ttl);
+        long bytes = 0;
+        for (Path file : cachedFiles()) {
+            if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                Files.deleteIfExists(file);
+            } else {
+                bytes += Files.size(file);
+            }
+        }
+        totalBytes.set(bytes);
+        log.info("Google Books page cache at {} holds {} KB", directory, bytes / 1024);
+    }
+
+    /**
+     * In cache-only mode a miss is never sent to the remote API; used by tests and offline environments.
+     */
+    public boolean isCacheOnly() {
+        return cacheOnly;
+    }
+
+    /**
+     * Returns the cached page, or {@code null} on a miss or an expired entry.
+     */
+    public GoogleBooksResponse get(String query, int startIndex, int pageSize) {
+        if (!enabled) {
+            return null;
+        }
+        Path file = fileFor(query, startIndex, pageSize);
+        try {
+            if (Files.getLastModifiedTime(file).toInstant().isBefore(Instant.now().minus(ttl))) {
+                delete(file);
+                misses.increment();
+                return null;
+            }
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                GoogleBooksResponse page = objectMapper.readValue(in, GoogleBooksResponse.class);
+                hits.increment();
+                return page;
+            }
+        } catch (NoSuchFileException e) {
+            misses.increment();
+            return null;
+        } catch (IOException e) {
+            log.warn("Discarding unreadable cached page {}: {}", file, e.getMessage());
+            delete(file);
+            misses.increment();
+            return null;
+        }
+    }
+
+    public void put(String query, int startIndex, int pageSize, GoogleBooksResponse page) {
+        if (!enabled) {
+            return;
+        }
+        Path file = fileFor(query, startIndex, pageSize);
+        try {
+            // Write to a temporary file first so concurrent readers never see a partial entry
+            Path temp = Files.createTempFile(directory, "page", ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                objectMapper.writeValue(out, page);
+            }
+            long previous = Files.exists(file) ? Files.size(file) : 0;
+            long written = Files.size(temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (totalBytes.addAndGet(written - previous) > maxSize.toBytes()) {
+                evict();
+            }
+        } catch (IOException e) {
+            log.warn("Could not cache Google Books page for query {}: {}", query, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the oldest entries until the cache is back under 90% of its budget.
+     */
+    private synchronized void evict() throws IOException {
+        long target = maxSize.toBytes() * 9 / 10;
+        if (totalBytes.get() <= target) {
+            return;
+        }
+        List<Path> files = cachedFiles();
+        files.sort(Comparator.comparing(GoogleBooksPageCache::lastModified));
+        int evicted = 0;
+        for (Path file : files) {
+            if (totalBytes.get() <= target) {
+                break;
+            }
+            delete(file);
+            evicted++;
+        }
+        log.debug("Evicted {} Google Books pages from the cache", evicted);
+    }
+
+    private void delete(Path file) {
+        try {
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                totalBytes.addAndGet(-size);
+            }
+        } catch (IOException e) {
+            log.debug("Could not delete cached page {}: {}", file, e.getMessage());
+        }
+    }
+
+    private List<Path> cachedFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Instant lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant();
+        } catch (IOException e) {
+            return Instant.MIN;
+        }
+    }
+
+    private Path fileFor(String query, int startIndex, int pageSize) {
+        String key = query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT) + "|" + startIndex + "|" + pageSize;
+        return directory.resolve(TokenDigest.sha256(key) + SUFFIX);
+    }
+}
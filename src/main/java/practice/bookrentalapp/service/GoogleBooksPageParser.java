@@ -0,0 +1,128 @@
+package practice.bookrentalapp.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse.Item;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse.VolumeInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser for Google Books volume search pages. Each {@code volumeInfo} is scanned token by token and
+ * only buffered while it can still be admitted; volumes that fail {@link VolumeInfoConverter#isAdmitted} are
+ * skipped without building any objects and only counted in {@link GoogleBooksResponse#getFilteredItems()}.
+ */
+@Component
+public class GoogleBooksPageParser {
+    private final ObjectMapper objectMapper;
+    private final ObjectReader volumeReader;
+
+    @Autowired
+    public GoogleBooksPageParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.volumeReader = objectMapper.readerFor(VolumeInfo.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * Parses a page. {@code items} stays {@code null} only if the response has no items array, which the API
+     * uses to signal the end of the results.
+     */
+    public GoogleBooksResponse parse(InputStream in) throws IOException {
+        GoogleBooksResponse page = new GoogleBooksResponse();
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a Google Books response object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("totalItems".equals(field)) {
+                    page.setTotalItems(parser.getValueAsInt());
+                } else if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                    List<Item> items = new ArrayList<>();
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        VolumeInfo volumeInfo = readItem(parser);
+                        if (volumeInfo != null) {
+                            Item item = new Item();
+                            item.setVolumeInfo(volumeInfo);
+                            items.add(item);
+                        } else {
+                            page.setFilteredItems(page.getFilteredItems() + 1);
+                        }
+                    }
+                    page.setItems(items);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return page;
+    }
+
+    private VolumeInfo readItem(JsonParser parser) throws IOException {
+        VolumeInfo volumeInfo = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("volumeInfo".equals(field) && value == JsonToken.START_OBJECT) {
+                volumeInfo = readVolumeInfo(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return volumeInfo;
+    }
+
+    /**
+     * Copies the volume's tokens into a buffer while watching {@code language} and {@code printType}. As soon as
+     * either rules the volume out, the rest of the object is skipped and the buffer dropped.
+     */
+    private VolumeInfo readVolumeInfo(JsonParser parser) throws IOException {
+        String language = null;
+        String printType = null;
+        boolean rejected = false;
+        try (TokenBuffer buffer = new TokenBuffer(parser)) {
+            buffer.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (rejected) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if ("language".equals(field)) {
+                    language = parser.getValueAsString();
+                    rejected = !VolumeInfoConverter.isAdmittedLanguage(language);
+                } else if ("printType".equals(field)) {
+                    printType = parser.getValueAsString();
+                    rejected = !VolumeInfoConverter.isAdmittedPrintType(printType);
+                }
+                if (rejected) {
+                    parser.skipChildren();
+                    continue;
+                }
+                buffer.writeFieldName(field);
+                buffer.copyCurrentStructure(parser);
+            }
+            if (rejected || !VolumeInfoConverter.isAdmitted(language, printType)) {
+                return null;
+            }
+            buffer.writeEndObject();
+            try (JsonParser volumeParser = buffer.asParser(parser.getCodec())) {
+                return volumeReader.readValue(volumeParser);
+            }
+        }
+    }
+}
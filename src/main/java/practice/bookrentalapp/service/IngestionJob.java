@@ -0,0 +1,55 @@
+package practice.bookrentalapp.service;
+
+import lombok.Getter;
+import practice.bookrentalapp.model.dto.response.IngestionJobResponse;
+import practice.bookrentalapp.model.enums.IngestionStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one catalog ingestion. Counters are updated by the worker and read by status requests concurrently.
+ * Records are either skipped by the admission rules, dropped as duplicates, saved, or counted as failed. Page
+ * counters only move for sources that are fetched page by page.
+ */
+@Getter
+public class IngestionJob {
+    private final String id = UUID.randomUUID().toString();
+    private final String source;
+    private final Instant startedAt = Instant.now();
+    private final AtomicLong pagesFetched = new AtomicLong();
+    private final AtomicLong pagesFailed = new AtomicLong();
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong saved = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile IngestionStatus status = IngestionStatus.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public IngestionJob(String source) {
+        this.source = source;
+    }
+
+    public void complete() {
+        finishedAt = Instant.now();
+        status = IngestionStatus.COMPLETED;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        status = IngestionStatus.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status != IngestionStatus.RUNNING;
+    }
+
+    public IngestionJobResponse toResponse() {
+        return new IngestionJobResponse(id, source, status, pagesFetched.get(), pagesFailed.get(), read.get(), skipped.get(), duplicates.get(), saved.get(),
+                failed.get(), startedAt, finishedAt, error);
+    }
+}
@@ -0,0 +1,37 @@
+package practice.bookrentalapp.service;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps ingestion jobs so their progress can be polled. Finished jobs are forgotten after a retention period.
+ */
+@Component
+public class IngestionJobRegistry {
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${catalog.ingestion.job-retention:24h}")
+    private Duration retention;
+
+    public IngestionJob register(String source) {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+        IngestionJob job = new IngestionJob(source);
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    public IngestionJob get(String jobId) throws BadRequestException {
+        IngestionJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new BadRequestException("Unknown ingestion job: " + jobId);
+        }
+        return job;
+    }
+}
@@ -0,0 +1,91 @@
+package practice.bookrentalapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import practice.bookrentalapp.model.entities.RefreshToken;
+import practice.bookrentalapp.model.entities.User;
+import practice.bookrentalapp.repositories.RefreshTokenRepository;
+import practice.bookrentalapp.utils.TokenDigest;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Issues and rotates opaque refresh tokens. Only a SHA-256 digest of each token is stored,
+ * and every successful refresh revokes the presented token so it can be exchanged once.
+ */
+@Service
+@Slf4j
+public class RefreshTokenService {
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${jwt.refresh-expiration:30d}")
+    private Duration refreshExpiration;
+
+    @Autowired
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository) {
+        this.refreshTokenRepository = refreshTokenRepository;
+    }
+
+    @Transactional
+    public String issue(User user) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(TokenDigest.sha256(rawToken));
+        refreshToken.setUser(user);
+        refreshToken.setExpiresAt(LocalDateTime.now().plus(refreshExpiration));
+        refreshTokenRepository.save(refreshToken);
+        return rawToken;
+    }
+
+    /**
+     * Revokes the presented token and returns its owner. Presenting a token that was already
+     * rotated is treated as theft, and every refresh token of that user is revoked. The token is
+     * claimed with a conditional update, so of two concurrent refreshes with the same token only
+     * one succeeds and the other counts as reuse.
+     */
+    @Transactional
+    public User consume(String rawToken) throws BadRequestException {
+        String tokenHash = TokenDigest.sha256(rawToken);
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHashWithUser(tokenHash)
+                .orElseThrow(() -> new BadRequestException("Invalid refresh token"));
+        User user = refreshToken.getUser();
+        if (!refreshToken.isRevoked() && refreshToken.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new BadRequestException("Refresh token has expired");
+        }
+        if (refreshTokenRepository.revokeIfActive(tokenHash) == 0) {
+            log.warn("Reuse of revoked refresh token detected for user: {}", user.getUsername());
+            refreshTokenRepository.revokeAllForUser(user.getId());
+            throw new BadRequestException("Invalid refresh token");
+        }
+        return user;
+    }
+
+    @Transactional
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.revokeAllForUser(userId);
+    }
+
+    /**
+     * Deletes expired tokens. Revoked tokens are kept until they expire so that reuse is still detected.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh-purge-interval:PT1H}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("Purged {} expired refresh tokens", deleted);
+        }
+    }
+}
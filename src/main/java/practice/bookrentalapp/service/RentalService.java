@@ -6,6 +6,7 @@ import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.stereotype.Service;
@@ -18,12 +19,15 @@ import practice.bookrentalapp.model.entities.Book;
 import practice.bookrentalapp.model.entities.Rental;
 import practice.bookrentalapp.model.entities.User;
 import practice.bookrentalapp.model.enums.RentalStatus;
+import practice.bookrentalapp.model.events.CatalogChangedEvent;
+import practice.bookrentalapp.model.events.RentalCreatedEvent;
 import practice.bookrentalapp.repositories.BookRepository;
 import practice.bookrentalapp.repositories.RentalRepository;
 import practice.bookrentalapp.utils.EntityDtoMapper;
 
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -35,18 +39,21 @@ public class RentalService {
     private final RentalRepository rentalRepository;
     private final EntityDtoMapper entityDtoMapper;
     private final BookRepository bookRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public RentalService(RentalRepository rentalRepository, EntityDtoMapper entityDtoMapper, BookRepository bookRepository) {
+    public RentalService(RentalRepository rentalRepository, EntityDtoMapper entityDtoMapper, BookRepository bookRepository,
+                         ApplicationEventPublisher eventPublisher) {
         this.rentalRepository = rentalRepository;
         this.entityDtoMapper = entityDtoMapper;
         this.bookRepository = bookRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
-    public RentalDto getRentalById(Long id, User user) {
+    public RentalDto getRentalById(Long id, Long userId) {
         Rental rental = rentalRepository.findById(id).orElseThrow(IllegalArgumentException::new);
-        if(!Objects.equals(rental.getUser().getId(), user.getId())) {
+        if(!Objects.equals(rental.getUser().getId(), userId)) {
             throw new IllegalArgumentException("User is not the owner of rental");
         }
         updateOverdueStatus(rental);
@@ -54,8 +61,8 @@ public class RentalService {
     }
 
     @Transactional
-    public Page<RentalDto> getRentalsForUser(User user, RentalFilter rentalFilter) {
-        rentalFilter.setUserId(user.getId());
+    public Page<RentalDto> getRentalsForUser(Long userId, RentalFilter rentalFilter) {
+        rentalFilter.setUserId(userId);
         return getRentals(rentalFilter);
     }
 
@@ -131,36 +138,52 @@ public class RentalService {
 
     }
 
+    /**
+     * Reserves one copy of every requested book with a single conditional update, so concurrent renters can never
+     * lend more copies than exist. If any book is missing or fully lent, the whole rental is rolled back.
+     */
     @Transactional
-    public RentalDto createRental(CreateRentalRequest request, User user) {
-        Set<Book> books = new HashSet<>();
-        for(Long id : request.getBookIds()) {
-            Book book = bookRepository.findById(id).orElseThrow(IllegalArgumentException::new);
-            if(Objects.equals(book.getTotalCopies(), book.getCopiesLent())) {
-                throw new IllegalArgumentException("No available copies for book " + book.getTitle());
-            }
-            book.setCopiesLent(book.getCopiesLent() + 1);
-            books.add(book);
-            bookRepository.saveAndFlush(book);
+    public RentalDto createRental(CreateRentalRequest request, Long userId) {
+        Set<Long> bookIds = new LinkedHashSet<>(request.getBookIds());
+        int reserved = bookRepository.reserveCopies(bookIds, LocalDateTime.now());
+        // Loaded after the update, so the persistence context holds the new copy counts
+        List<Book> books = bookRepository.findAllById(bookIds);
+        if (books.size() != bookIds.size()) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        if (reserved != bookIds.size()) {
+            throw new IllegalArgumentException("No available copies for one or more of the requested books");
         }
         Rental rental = new Rental();
         rental.setStatus(RentalStatus.ACTIVE);
-        rental.setBooks(books);
-        rental.setUser(user);
+        rental.setBooks(new HashSet<>(books));
+        rental.setUser(entityManager.getReference(User.class, userId));
         rental.setIssueDate(LocalDate.now());
         rental.setDueDate(LocalDate.now().plusDays((long) request.getRentalDuration()));
+        eventPublisher.publishEvent(CatalogChangedEvent.inventoryChanged(books));
+        eventPublisher.publishEvent(new RentalCreatedEvent(userId, List.copyOf(bookIds)));
         return entityDtoMapper.mapToRentalDto(rentalRepository.save(rental));
     }
 
     @Transactional
-    public void closeRental(Long rentalId, User user) {
+    public void closeRental(Long rentalId, Long userId) {
         Rental rental = rentalRepository.findById(rentalId).orElseThrow(IllegalArgumentException::new);
-        if(!Objects.equals(rental.getUser().getId(), user.getId())) {
+        if(!Objects.equals(rental.getUser().getId(), userId)) {
             throw new IllegalArgumentException("User is not the owner of rental");
         }
-        for(Book book : rental.getBooks()) {
-            book.setCopiesLent(book.getCopiesLent() - 1);
-            bookRepository.saveAndFlush(book);
+        if(rental.getStatus() == RentalStatus.RETURNED) {
+            throw new IllegalArgumentException("Rental is already returned");
+        }
+        List<Long> bookIds = rental.getBooks().stream().map(Book::getId).toList();
+        if(!bookIds.isEmpty()) {
+            bookRepository.releaseCopies(bookIds, LocalDateTime.now());
+            // The loaded books still hold the old counts, so the event is built from the updated rows
+            List<CatalogChangedEvent.InventoryChange> changes = bookRepository.findInventoryByIds(bookIds).stream()
+                    .map(row -> new CatalogChangedEvent.InventoryChange((Long) row[0],
+                            row[1] != null ? (Integer) row[1] : 0,
+                            row[2] != null ? (Integer) row[2] : 0))
+                    .toList();
+            eventPublisher.publishEvent(CatalogChangedEvent.inventory(changes));
         }
         rental.setStatus(RentalStatus.RETURNED);
         rental.setReturnDate(LocalDate.now());
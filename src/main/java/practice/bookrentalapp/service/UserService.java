@@ -20,6 +20,8 @@ import practice.bookrentalapp.model.entities.User;
 import practice.bookrentalapp.model.enums.RentalStatus;
 import practice.bookrentalapp.model.enums.Role;
 import practice.bookrentalapp.repositories.UserRepository;
+import practice.bookrentalapp.security.CustomUserDetailsService;
+import practice.bookrentalapp.security.SecurityVersionRegistry;
 import practice.bookrentalapp.utils.EntityDtoMapper;
 
 import java.time.LocalDate;
@@ -35,20 +37,29 @@ import java.util.stream.Collectors;
 public class UserService {
     private final UserRepository userRepository;
     private final EntityDtoMapper entityDtoMapper;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final CustomUserDetailsService userDetailsService;
     @PersistenceContext
     private EntityManager entityManager;
 
     @Autowired
-    public UserService(UserRepository userRepository, EntityDtoMapper entityDtoMapper) {
+    public UserService(UserRepository userRepository, EntityDtoMapper entityDtoMapper,
+                       SecurityVersionRegistry securityVersionRegistry, CustomUserDetailsService userDetailsService) {
         this.userRepository = userRepository;
         this.entityDtoMapper = entityDtoMapper;
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.userDetailsService = userDetailsService;
     }
 
+    @Transactional
     public void promoteToAdmin(Long userId) {
         User user = userRepository.findById(userId).orElseThrow(IllegalArgumentException::new);
         user.setRole(Role.ROLE_ADMIN);
+        // Tokens issued before the role change carry stale roles and must stop being accepted
+        bumpSecurityVersion(user);
         log.info("User {} promoted to admin.", user.getUsername());
-        userRepository.save(user);
+        securityVersionRegistry.update(userRepository.save(user));
+        userDetailsService.evict(user.getUsername(), user.getEmail());
     }
 
     public UserDto getCurrentUser(long userId) {
@@ -62,15 +73,28 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         UpdateUserProfileResponse response = new UpdateUserProfileResponse();
+        userDetailsService.evict(user.getUsername(), user.getEmail());
 
         updateField(request.getNewName(), user::setName, response::setUpdatedName, user::getName);
         updateField(request.getNewEmail(), user::setEmail, response::setUpdatedEmail, user::getEmail);
         updateField(request.getNewUsername(), user::setUsername, response::setUpdatedUsername, user::getUsername);
 
-        userRepository.save(user);
+        // Tokens carry username and email as claims, so those issued before the change must stop being accepted
+        boolean identityChanged = request.getNewEmail() != null || request.getNewUsername() != null;
+        if (identityChanged) {
+            bumpSecurityVersion(user);
+        }
+        User saved = userRepository.save(user);
+        if (identityChanged) {
+            securityVersionRegistry.update(saved);
+        }
         return response;
     }
 
+    private void bumpSecurityVersion(User user) {
+        user.setSecurityVersion((user.getSecurityVersion() != null ? user.getSecurityVersion() : 0) + 1);
+    }
+
     private void updateField(String newValue, Consumer<String> setter, Consumer<String> responseSetter, Supplier<String> getter) {
         if (newValue != null) {
             setter.accept(newValue);
@@ -0,0 +1,84 @@
+package practice.bookrentalapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse;
+import practice.bookrentalapp.model.entities.Book;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Catalog admission rules for Google Books volume data: only English books are kept, and the ISBN_13
+ * identifier becomes the book's ISBN. Shared by the Google Books ingestion and offline file imports.
+ */
+@Component
+@Slf4j
+public class VolumeInfoConverter {
+
+    /**
+     * Returns a new unsaved book with {@code copies} total copies, or {@code null} if the volume is not admitted.
+     */
+    public Book convert(GoogleBooksResponse.VolumeInfo volumeInfo, Integer copies) {
+        if (volumeInfo == null || !isAdmitted(volumeInfo.getLanguage(), volumeInfo.getPrintType())) {
+            log.debug("Skipping item due to invalid/irrelevant volume info: {}", volumeInfo);
+            return null;
+        }
+        Book book = new Book();
+        book.setTotalCopies(copies);
+        book.setTitle(volumeInfo.getTitle());
+        book.setPageCount(volumeInfo.getPageCount());
+        book.setLanguage("en");
+        book.setAverageRating(volumeInfo.getAverageRating());
+        book.setPublisher(volumeInfo.getPublisher());
+        book.setAuthors(new HashSet<>(volumeInfo.getAuthors() != null ? volumeInfo.getAuthors() : Collections.emptyList()));
+        book.setCategories(new HashSet<>(volumeInfo.getCategories() != null ? volumeInfo.getCategories() : Collections.emptyList()));
+        book.setPublishedDate(parsePublishedDate(volumeInfo.getPublishedDate()));
+        setISBNIfPresent(volumeInfo, book);
+        log.debug("Converted item to book: {}", book);
+        return book;
+    }
+
+    public static boolean isAdmitted(String language, String printType) {
+        return isAdmittedLanguage(language) && isAdmittedPrintType(printType);
+    }
+
+    public static boolean isAdmittedLanguage(String language) {
+        return "en".equals(language);
+    }
+
+    public static boolean isAdmittedPrintType(String printType) {
+        return "BOOK".equals(printType);
+    }
+
+    private void setISBNIfPresent(GoogleBooksResponse.VolumeInfo volumeInfo, Book book) {
+        if(volumeInfo.getIndustryIdentifiers() == null) {
+            return;
+        }
+        for (GoogleBooksResponse.VolumeInfo.IndustryIdentifier identifier : volumeInfo.getIndustryIdentifiers()) {
+            if ("ISBN_13".equalsIgnoreCase(identifier.getType())) {
+                book.setISBN(identifier.getIdentifier());
+                break;
+            }
+        }
+    }
+
+    private LocalDate parsePublishedDate(String dateStr) {
+        if (dateStr == null || dateStr.isEmpty()) {
+            return null;
+        }
+        try {
+            return switch (dateStr.length()) {
+                case 10 -> LocalDate.parse(dateStr);
+                case 7 -> LocalDate.parse(dateStr + "-01");
+                case 4 -> LocalDate.parse(dateStr + "-01-01");
+                default -> null;
+            };
+        } catch (DateTimeParseException e) {
+            log.warn("Unable to parse published date: {}", dateStr);
+            return null;
+        }
+    }
+}
@@ -3,14 +3,19 @@ package practice.bookrentalapp.utils;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import practice.bookrentalapp.model.entities.User;
+import practice.bookrentalapp.security.AuthenticatedUser;
 
 public class LoginChecker {
-    public static User isAuthenticated() {
+    public static AuthenticatedUser isAuthenticated() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if(authentication != null
-                && authentication.isAuthenticated()
-                && authentication.getPrincipal() instanceof User user) {
-            return user;
+        if(authentication == null || !authentication.isAuthenticated()) {
+            return null;
+        }
+        if(authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal;
+        }
+        if(authentication.getPrincipal() instanceof User user) {
+            return AuthenticatedUser.from(user);
         }
         return null;
     }
@@ -0,0 +1,67 @@
+package practice.bookrentalapp.utils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe token bucket. Tokens refill continuously at a fixed rate up to {@code capacity}, so short bursts
+ * are allowed while the long-run rate stays bounded. Callers reserve a token and sleep outside the lock until it
+ * is due, which keeps waiting threads in FIFO order of reservation.
+ */
+public class TokenBucket {
+    private final long capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(long capacity, long tokensPerPeriod, Duration period) {
+        if (capacity <= 0 || tokensPerPeriod <= 0 || period.isZero() || period.isNegative()) {
+            throw new IllegalArgumentException("Token bucket capacity, rate and period must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = (double) tokensPerPeriod / period.toNanos();
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes one token, blocking until it is available, and returns how long the caller waited in nanoseconds.
+     */
+    public long acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Takes one token only if it is available right now.
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized double availableTokens() {
+        refill();
+        return Math.max(tokens, 0);
+    }
+
+    private synchronized long reserve() {
+        refill();
+        tokens -= 1;
+        // A negative balance is debt owed by threads already waiting; the new reservation queues behind it
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
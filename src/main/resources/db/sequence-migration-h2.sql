@@ -0,0 +1,14 @@
+-- The dev profile recreates its in-memory H2 schema on startup, so it needs no migration.
+-- For a persistent H2 database created with IDENTITY ids, run this once before starting the new version.
+-- H2 does not accept a subquery in RESTART WITH, so substitute MAX(id) + 100 of each table.
+--   SELECT COALESCE(MAX(id), 0) + 100 FROM books;   -- and likewise for rentals, users, refresh_tokens
+
+CREATE SEQUENCE IF NOT EXISTS book_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS rental_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS user_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS refresh_token_seq START WITH 1 INCREMENT BY 50;
+
+-- ALTER SEQUENCE book_seq RESTART WITH <books max id + 100>;
+-- ALTER SEQUENCE rental_seq RESTART WITH <rentals max id + 100>;
+-- ALTER SEQUENCE user_seq RESTART WITH <users max id + 100>;
+-- ALTER SEQUENCE refresh_token_seq RESTART WITH <refresh_tokens max id + 100>;
@@ -0,0 +1,21 @@
+-- Moves an existing MySQL schema from IDENTITY ids to the pooled per-entity sequences used by BaseEntity.
+-- MySQL has no native sequences, so Hibernate emulates each one with a single-row table. Run this once,
+-- with the application stopped, before starting the new version (ddl-auto=update would otherwise seed
+-- the tables with 1 and collide with existing ids). The +100 margin keeps the first pooled block clear
+-- of existing rows regardless of how the optimizer interprets the stored value.
+
+CREATE TABLE IF NOT EXISTS book_seq (next_val BIGINT);
+DELETE FROM book_seq;
+INSERT INTO book_seq (next_val) SELECT COALESCE(MAX(id), 0) + 100 FROM books;
+
+CREATE TABLE IF NOT EXISTS rental_seq (next_val BIGINT);
+DELETE FROM rental_seq;
+INSERT INTO rental_seq (next_val) SELECT COALESCE(MAX(id), 0) + 100 FROM rentals;
+
+CREATE TABLE IF NOT EXISTS user_seq (next_val BIGINT);
+DELETE FROM user_seq;
+INSERT INTO user_seq (next_val) SELECT COALESCE(MAX(id), 0) + 100 FROM users;
+
+CREATE TABLE IF NOT EXISTS refresh_token_seq (next_val BIGINT);
+DELETE FROM refresh_token_seq;
+INSERT INTO refresh_token_seq (next_val) SELECT COALESCE(MAX(id), 0) + 100 FROM refresh_tokens;
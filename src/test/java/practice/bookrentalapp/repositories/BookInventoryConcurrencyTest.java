@@ -0,0 +1,116 @@
+package practice.bookrentalapp.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import practice.bookrentalapp.config.JpaConfig;
+import practice.bookrentalapp.model.entities.Book;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many callers reserving and releasing copies of the same books at once, each in its own committed transaction.
+ */
+@DataJpaTest
+@Import(JpaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookInventoryConcurrencyTest {
+    private static final int CALLERS = 24;
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentReservationsNeverLendMoreThanTotalCopies() throws Exception {
+        Long bookId = saveBook("Dune", 5).getId();
+
+        List<Integer> reserved = race(status -> bookRepository.reserveCopies(List.of(bookId), LocalDateTime.now()));
+
+        assertThat(reserved).containsOnly(0, 1);
+        assertThat(reserved.stream().mapToInt(Integer::intValue).sum()).isEqualTo(5);
+        assertThat(copiesLent(bookId)).isEqualTo(5);
+    }
+
+    @Test
+    void concurrentReleasesNeverGoBelowZero() throws Exception {
+        Book book = saveBook("Emma", 5);
+        book.setCopiesLent(3);
+        Long bookId = bookRepository.save(book).getId();
+
+        List<Integer> released = race(status -> bookRepository.releaseCopies(List.of(bookId), LocalDateTime.now()));
+
+        assertThat(released.stream().mapToInt(Integer::intValue).sum()).isEqualTo(3);
+        assertThat(copiesLent(bookId)).isZero();
+    }
+
+    /**
+     * Runs {@code work} from {@link #CALLERS} threads released together, each in its own transaction, and returns
+     * what every call reported.
+     */
+    private List<Integer> race(ToIntFunction<TransactionStatus> work) throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CyclicBarrier start = new CyclicBarrier(CALLERS);
+        List<Future<Integer>> calls = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(CALLERS)) {
+            for (int i = 0; i < CALLERS; i++) {
+                calls.add(executor.submit(() -> {
+                    start.await();
+                    return transactionTemplate.execute(status -> {
+                        int count = work.applyAsInt(status);
+                        // Hold the row locks a little so the other callers queue up behind this transaction
+                        sleep();
+                        return count;
+                    });
+                }));
+            }
+            List<Integer> results = new ArrayList<>();
+            for (Future<Integer> call : calls) {
+                results.add(call.get());
+            }
+            return results;
+        }
+    }
+
+    private Book saveBook(String title, int totalCopies) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setTotalCopies(totalCopies);
+        return bookRepository.save(book);
+    }
+
+    private int copiesLent(Long bookId) {
+        Object[] inventory = bookRepository.findInventoryByIds(List.of(bookId)).get(0);
+        return (Integer) inventory[2];
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package practice.bookrentalapp.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoRentalIndexTest {
+
+    @Test
+    void eachReaderCountsAPairOnce() {
+        CoRentalIndex index = new CoRentalIndex();
+        // Reader 1 rents 10 and 20 twice, reader 2 rents 10 with 30 once; repeats add nothing
+        index.recordRental(1L, List.of(10L, 20L));
+        index.recordRental(1L, List.of(10L, 20L));
+        index.recordRental(1L, List.of(20L));
+        index.recordRental(2L, List.of(10L));
+        index.recordRental(2L, List.of(30L));
+        // A third reader makes 10-30 the stronger pair
+        index.recordRental(3L, List.of(30L, 10L));
+
+        assertThat(index.similar(10L, 5)).containsExactly(30L, 20L);
+        assertThat(index.similar(20L, 5)).containsExactly(10L);
+        assertThat(index.similar(30L, 5)).containsExactly(10L);
+        assertThat(index.similar(40L, 5)).isEmpty();
+    }
+
+    @Test
+    void neighboursRankByCountThenIdAndStayCurrent() {
+        CoRentalIndex index = new CoRentalIndex();
+        index.recordRental(1L, List.of(1L, 5L, 3L, 4L));
+        index.recordRental(2L, List.of(1L, 4L));
+        index.recordRental(3L, List.of(1L, 4L, 2L));
+
+        assertThat(index.similar(1L, 10)).containsExactly(4L, 2L, 3L, 5L);
+        assertThat(index.similar(1L, 2)).containsExactly(4L, 2L);
+
+        // The cached ranking is dropped when a count changes
+        index.recordRental(4L, List.of(1L, 5L));
+        index.recordRental(5L, List.of(1L, 5L));
+        assertThat(index.similar(1L, 2)).containsExactly(4L, 5L);
+    }
+
+    @Test
+    void rankingKeepsTheTopFifty() {
+        CoRentalIndex index = new CoRentalIndex();
+        List<Long> books = LongStream.rangeClosed(2, 100).boxed().toList();
+        index.recordRental(1L, books);
+        index.recordRental(1L, List.of(1L));
+
+        assertThat(index.similar(1L, 100)).hasSize(50).startsWith(2L, 3L).endsWith(51L);
+    }
+
+    @Test
+    void concurrentRentalsBySameReaderCountEachPairOnce() throws Exception {
+        CoRentalIndex index = new CoRentalIndex();
+        int threads = 8;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Future<?>> calls = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                long offset = t;
+                calls.add(executor.submit(() -> {
+                    start.await();
+                    for (long book = 1; book <= 20; book++) {
+                        index.recordRental(1L, List.of(1 + (book + offset) % 20));
+                        index.recordRental(2L + offset, List.of(1L, 100L));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> call : calls) {
+                call.get();
+            }
+        }
+
+        // Reader 1 holds all 20 books once, so each of them neighbours the other 19 with a single count;
+        // books 1 and 100 were also rented together by 8 other readers
+        assertThat(index.similar(100L, 5)).containsExactly(1L);
+        assertThat(index.similar(1L, 1)).containsExactly(100L);
+        assertThat(index.similar(20L, 50)).hasSize(19).doesNotContain(20L).startsWith(1L, 2L);
+    }
+}
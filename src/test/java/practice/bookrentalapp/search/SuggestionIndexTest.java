@@ -0,0 +1,134 @@
+package practice.bookrentalapp.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import practice.bookrentalapp.model.dto.response.SuggestionResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class SuggestionIndexTest {
+    private static final int TITLES = 40_000;
+
+    @Test
+    void exactPrefixesRankBeforeTypoMatches() {
+        SuggestionIndex index = new SuggestionIndex();
+        index.upsertAll(List.of(
+                book(1L, "The Hobbit", "J. R. R. Tolkien"),
+                book(2L, "Hobbies for Beginners", "Ann Smith"),
+                book(3L, "Robbing the Bank", "Tom Robb")));
+
+        List<SuggestionResponse> suggestions = index.suggest("hobb", 5);
+
+        assertThat(suggestions).extracting(SuggestionResponse::getText)
+                .startsWith("Hobbies for Beginners", "The Hobbit");
+    }
+
+    @Test
+    void typoFindsTermAtAnyWordBoundary() {
+        SuggestionIndex index = new SuggestionIndex();
+        index.upsertAll(List.of(
+                book(1L, "The Fellowship of the Ring", "J. R. R. Tolkien"),
+                book(2L, "Dune", "Frank Herbert")));
+
+        assertThat(index.suggest("felowship", 5)).extracting(SuggestionResponse::getText)
+                .containsExactly("The Fellowship of the Ring");
+        assertThat(index.suggest("tolkein", 5)).extracting(SuggestionResponse::getText)
+                .containsExactly("J. R. R. Tolkien");
+    }
+
+    @Test
+    void removedBooksStopSuggesting() {
+        SuggestionIndex index = new SuggestionIndex();
+        index.upsertAll(List.of(book(1L, "Middlemarch", "George Eliot")));
+
+        index.removeAll(List.of(1L));
+
+        assertThat(index.suggest("middlemarch", 5)).isEmpty();
+        assertThat(index.suggest("midlemarch", 5)).isEmpty();
+    }
+
+    @Test
+    void typoLookupsScoreABoundedNumberOfCandidates() {
+        SuggestionIndex index = new SuggestionIndex();
+        List<BookSnapshot> books = new ArrayList<>();
+        // Every title is one edit away from the query and none starts with it, so all of them are fuzzy candidates
+        for (int i = 0; i < 500; i++) {
+            books.add(book((long) i, "Hobbit " + i, "Author " + i));
+        }
+        index.upsertAll(books);
+
+        List<SuggestionResponse> suggestions = index.suggest("hobbjt", 1_000);
+
+        assertThat(suggestions).hasSize(64)
+                .allSatisfy(suggestion -> assertThat(suggestion.getText()).startsWith("Hobbit "));
+    }
+
+    /**
+     * Latency benchmark over {@value #TITLES} random titles. Logs the p99 rather than gating on it, since wall-clock
+     * figures depend on the machine.
+     */
+    @Test
+    void typoLookupLatencyBenchmark() {
+        Random random = new Random(42);
+        SuggestionIndex index = new SuggestionIndex();
+        List<String> titles = new ArrayList<>(TITLES);
+        List<BookSnapshot> books = new ArrayList<>(TITLES);
+        for (int i = 0; i < TITLES; i++) {
+            String title = phrase(random, 2 + random.nextInt(4));
+            titles.add(title);
+            books.add(book((long) i, title, phrase(random, 2)));
+        }
+        index.upsertAll(books);
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            String word = titles.get(random.nextInt(TITLES)).split(" ")[0];
+            queries.add(withTypo(random, word));
+        }
+        // Warm up, then keep the best of a few rounds so a single GC pause does not decide the result
+        queries.forEach(query -> index.suggest(query, 10));
+        long bestP99 = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long[] nanos = new long[queries.size()];
+            for (int i = 0; i < queries.size(); i++) {
+                long start = System.nanoTime();
+                index.suggest(queries.get(i), 10);
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            bestP99 = Math.min(bestP99, nanos[(int) (nanos.length * 0.99) - 1]);
+        }
+
+        log.info("Typo lookups over {} titles: p99 {} µs", TITLES, bestP99 / 1_000);
+    }
+
+    private static String phrase(Random random, int words) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                phrase.append(' ');
+            }
+            int length = 3 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                phrase.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return phrase.toString();
+    }
+
+    private static String withTypo(Random random, String word) {
+        char[] chars = word.toCharArray();
+        chars[random.nextInt(chars.length)] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+
+    private static BookSnapshot book(Long id, String title, String author) {
+        return new BookSnapshot(id, title, List.of(author), List.of(), null, null, null, null, null, 1, 0, null);
+    }
+}
@@ -0,0 +1,100 @@
+package practice.bookrentalapp.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import practice.bookrentalapp.model.entities.User;
+import practice.bookrentalapp.model.enums.Role;
+import practice.bookrentalapp.repositories.UserRepository;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomUserDetailsServiceTest {
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CustomUserDetailsService service =
+            new CustomUserDetailsService(userRepository, new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void cachesAnImmutableSnapshotUnderUsernameAndEmail() {
+        User user = user("reader1", Role.ROLE_USER);
+        when(userRepository.findByUsernameOrEmail("reader1", "reader1")).thenReturn(user);
+
+        UserSnapshot loaded = service.loadUserByUsername("reader1");
+        UserSnapshot byEmail = service.loadUserByUsername("reader1@example.test");
+        // Changing the entity afterwards does not reach the cached copy
+        user.setRole(Role.ROLE_ADMIN);
+
+        assertThat(byEmail).isSameAs(loaded);
+        assertThat(service.loadUserByUsername("reader1").getAuthorities())
+                .extracting(Object::toString).containsExactly("ROLE_USER");
+        assertThat(loaded.getId()).isEqualTo(1L);
+        assertThat(loaded.getPassword()).isEqualTo("hash");
+        assertThatThrownBy(() -> loaded.getAuthorities().clear()).isInstanceOf(UnsupportedOperationException.class);
+        verify(userRepository, times(1)).findByUsernameOrEmail("reader1", "reader1");
+    }
+
+    @Test
+    void evictedUserIsReloaded() {
+        when(userRepository.findByUsernameOrEmail("reader1", "reader1")).thenReturn(user("reader1", Role.ROLE_USER));
+        service.loadUserByUsername("reader1");
+
+        when(userRepository.findByUsernameOrEmail("reader1", "reader1")).thenReturn(user("reader1", Role.ROLE_ADMIN));
+        service.evict("reader1", "reader1@example.test");
+
+        assertThat(service.loadUserByUsername("reader1").getAuthorities())
+                .extracting(Object::toString).containsExactly("ROLE_ADMIN");
+        verify(userRepository, times(2)).findByUsernameOrEmail("reader1", "reader1");
+    }
+
+    @Test
+    void evictionInsideATransactionIsRepeatedAfterCommit() {
+        when(userRepository.findByUsernameOrEmail("reader1", "reader1")).thenReturn(user("reader1", Role.ROLE_USER));
+        TransactionSynchronizationManager.initSynchronization();
+        service.evict("reader1");
+        // A concurrent request re-caches the row before the change commits
+        service.loadUserByUsername("reader1");
+
+        when(userRepository.findByUsernameOrEmail("reader1", "reader1")).thenReturn(user("reader1", Role.ROLE_ADMIN));
+        TransactionSynchronizationUtils.triggerAfterCommit();
+
+        assertThat(service.loadUserByUsername("reader1").getAuthorities())
+                .extracting(Object::toString).containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void unknownUserIsNotCached() {
+        assertThatThrownBy(() -> service.loadUserByUsername("nobody"))
+                .hasMessageContaining("nobody");
+        assertThatThrownBy(() -> service.loadUserByUsername("nobody"))
+                .hasMessageContaining("nobody");
+
+        verify(userRepository, times(2)).findByUsernameOrEmail("nobody", "nobody");
+    }
+
+    private static User user(String username, Role role) {
+        User user = new User();
+        user.setId(1L);
+        user.setName(username);
+        user.setUsername(username);
+        user.setEmail(username + "@example.test");
+        user.setPassword("hash");
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,101 @@
+package practice.bookrentalapp.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import practice.bookrentalapp.model.entities.User;
+import practice.bookrentalapp.repositories.UserRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SecurityVersionRegistryTest {
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final AtomicLong nanos = new AtomicLong();
+    private final SecurityVersionRegistry registry =
+            new SecurityVersionRegistry(userRepository, 100, Duration.ofSeconds(30), nanos::get);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void updateTakesEffectOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        registry.update(user(1L, 2));
+        when(userRepository.findSecurityVersionById(1L)).thenReturn(Optional.of(1));
+        // Before commit this instance still agrees with the database
+        assertThat(registry.isCurrent(1L, 1)).isTrue();
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+
+        assertThat(registry.isCurrent(1L, 2)).isTrue();
+        assertThat(registry.isCurrent(1L, 1)).isFalse();
+    }
+
+    @Test
+    void rolledBackUpdateIsDiscarded() {
+        when(userRepository.findSecurityVersionById(1L)).thenReturn(Optional.of(1));
+        TransactionSynchronizationManager.initSynchronization();
+        registry.update(user(1L, 2));
+
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Tokens from a fresh login still carry the database version and are accepted
+        assertThat(registry.isCurrent(1L, 1)).isTrue();
+        assertThat(registry.isCurrent(1L, 2)).isFalse();
+    }
+
+    @Test
+    void updateOutsideATransactionAppliesImmediately() {
+        registry.update(user(1L, 3));
+
+        assertThat(registry.isCurrent(1L, 3)).isTrue();
+        verify(userRepository, never()).findSecurityVersionById(1L);
+    }
+
+    @Test
+    void changesMadeElsewhereArePickedUpAfterTheTtl() {
+        when(userRepository.findSecurityVersionById(1L)).thenReturn(Optional.of(1));
+        assertThat(registry.isCurrent(1L, 1)).isTrue();
+
+        // Another instance bumped the version in the database
+        when(userRepository.findSecurityVersionById(1L)).thenReturn(Optional.of(2));
+        nanos.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertThat(registry.isCurrent(1L, 1)).isTrue();
+
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertThat(registry.isCurrent(1L, 1)).isFalse();
+        assertThat(registry.isCurrent(1L, 2)).isTrue();
+    }
+
+    @Test
+    void unknownUserIsRejectedAndNotCached() {
+        when(userRepository.findSecurityVersionById(7L)).thenReturn(Optional.empty());
+
+        assertThat(registry.isCurrent(7L, 0)).isFalse();
+
+        when(userRepository.findSecurityVersionById(7L)).thenReturn(Optional.of(0));
+        assertThat(registry.isCurrent(7L, 0)).isTrue();
+    }
+
+    private static User user(Long id, int securityVersion) {
+        User user = new User();
+        user.setId(id);
+        user.setSecurityVersion(securityVersion);
+        return user;
+    }
+}
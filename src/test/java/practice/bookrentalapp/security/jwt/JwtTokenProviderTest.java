@@ -0,0 +1,117 @@
+package practice.bookrentalapp.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import practice.bookrentalapp.model.entities.User;
+import practice.bookrentalapp.model.enums.Role;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtTokenProviderTest {
+    private JwtTokenProvider tokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = newProvider(60_000L, 100);
+    }
+
+    @Test
+    void validTokenIsVerifiedOnceAndServedFromCache() {
+        String token = tokenProvider.generateToken(user(1L, "reader1"));
+
+        Claims first = tokenProvider.parseAndValidate(token);
+        Claims second = tokenProvider.parseAndValidate(token);
+
+        assertThat(first).isNotNull();
+        assertThat(first.getSubject()).isEqualTo("reader1");
+        assertThat(second).isSameAs(first);
+        assertThat(verifiedTokens(tokenProvider)).hasSize(1);
+    }
+
+    @Test
+    void tamperedSignatureIsRejectedWithoutThrowing() {
+        String token = tokenProvider.generateToken(user(1L, "reader1"));
+        assertThat(tokenProvider.parseAndValidate(token)).isNotNull();
+
+        String signature = token.substring(token.lastIndexOf('.') + 1);
+        char flipped = signature.charAt(0) == 'A' ? 'B' : 'A';
+        String tampered = token.substring(0, token.lastIndexOf('.') + 1) + flipped + signature.substring(1);
+
+        assertThat(tokenProvider.parseAndValidate(tampered)).isNull();
+        assertThat(verifiedTokens(tokenProvider)).hasSize(1);
+    }
+
+    @Test
+    void tokenSignedWithAnotherKeyIsRejected() {
+        JwtTokenProvider otherIssuer = newProvider(60_000L, 100);
+        String foreignToken = otherIssuer.generateToken(user(1L, "reader1"));
+
+        assertThat(tokenProvider.parseAndValidate(foreignToken)).isNull();
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        JwtTokenProvider expiredIssuer = newProvider(-1_000L, 100);
+        ReflectionTestUtils.setField(expiredIssuer, "secretKey", ReflectionTestUtils.getField(tokenProvider, "secretKey"));
+        expiredIssuer.init();
+
+        assertThat(tokenProvider.parseAndValidate(expiredIssuer.generateToken(user(1L, "reader1")))).isNull();
+        assertThat(verifiedTokens(tokenProvider)).isEmpty();
+    }
+
+    @Test
+    void cachedTokenStopsValidatingOnceExpired() throws InterruptedException {
+        JwtTokenProvider shortLived = newProvider(1_000L, 100);
+        String token = shortLived.generateToken(user(1L, "reader1"));
+        assertThat(shortLived.parseAndValidate(token)).isNotNull();
+        assertThat(verifiedTokens(shortLived)).hasSize(1);
+
+        // exp has second precision, so wait past the next full second
+        Thread.sleep(2_100L);
+
+        assertThat(shortLived.parseAndValidate(token)).isNull();
+        assertThat(verifiedTokens(shortLived)).isEmpty();
+    }
+
+    @Test
+    void cacheStaysWithinItsBound() {
+        JwtTokenProvider bounded = newProvider(60_000L, 2);
+        for (long id = 1; id <= 5; id++) {
+            String token = bounded.generateToken(user(id, "reader" + id));
+            assertThat(bounded.parseAndValidate(token)).isNotNull();
+        }
+
+        assertThat(verifiedTokens(bounded)).hasSizeLessThanOrEqualTo(2);
+    }
+
+    private static JwtTokenProvider newProvider(long expirationMs, int cacheSize) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        String secret = Encoders.BASE64.encode(Keys.secretKeyFor(SignatureAlgorithm.HS512).getEncoded());
+        ReflectionTestUtils.setField(provider, "secretKey", secret);
+        ReflectionTestUtils.setField(provider, "jwtExpirationInMs", expirationMs);
+        ReflectionTestUtils.setField(provider, "verifiedCacheMaxSize", cacheSize);
+        provider.init();
+        return provider;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Claims> verifiedTokens(JwtTokenProvider provider) {
+        return (Map<String, Claims>) ReflectionTestUtils.getField(provider, "verifiedTokens");
+    }
+
+    private static User user(Long id, String username) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setRole(Role.ROLE_USER);
+        return user;
+    }
+}
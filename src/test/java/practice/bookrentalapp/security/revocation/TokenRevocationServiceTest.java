@@ -0,0 +1,88 @@
+package practice.bookrentalapp.security.revocation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class TokenRevocationServiceTest {
+    private final InMemoryTokenRevocationStore store = spy(new InMemoryTokenRevocationStore());
+    private final TokenRevocationService service = new TokenRevocationService(store, 1_000, 0.001);
+
+    @BeforeEach
+    void setUp() {
+        service.init();
+    }
+
+    @Test
+    void revokedTokenIsRejectedUntilItExpires() {
+        service.revoke("jti-1", Instant.now().plusSeconds(60));
+
+        assertThat(service.isRevoked("jti-1")).isTrue();
+        assertThat(service.isRevoked("jti-2")).isFalse();
+        assertThat(service.isRevoked(null)).isFalse();
+    }
+
+    @Test
+    void tokensMissingFromTheFilterNeverReachTheStore() {
+        service.revoke("jti-1", Instant.now().plusSeconds(60));
+        clearInvocations(store);
+
+        for (int i = 0; i < 100; i++) {
+            service.isRevoked("unrevoked-" + i);
+        }
+
+        // At a 0.1% false positive rate almost none of these lookups may pass the filter
+        verify(store, atMost(5)).isRevoked(startsWith("unrevoked-"));
+        assertThat(service.isRevoked("jti-1")).isTrue();
+        verify(store).isRevoked("jti-1");
+    }
+
+    @Test
+    void purgeDropsExpiredEntriesFromTheStoreAndTheFilter() {
+        service.revoke("expired", Instant.now().minusSeconds(1));
+        service.revoke("active", Instant.now().plusSeconds(60));
+        assertThat(service.isRevoked("expired")).isFalse();
+        assertThat(store.activeTokenIds()).containsExactlyInAnyOrder("expired", "active");
+
+        service.purgeExpired();
+        clearInvocations(store);
+
+        assertThat(store.activeTokenIds()).containsExactly("active");
+        assertThat(service.isRevoked("expired")).isFalse();
+        verify(store, never()).isRevoked("expired");
+        assertThat(service.isRevoked("active")).isTrue();
+    }
+
+    @Test
+    void rebuildPicksUpRevocationsMadeThroughTheStore() {
+        // Another instance sharing the store revokes a token this instance's filter has not seen
+        store.revoke("elsewhere", Instant.now().plusSeconds(60));
+        assertThat(service.isRevoked("elsewhere")).isFalse();
+
+        service.purgeExpired();
+
+        assertThat(service.isRevoked("elsewhere")).isTrue();
+    }
+
+    @Test
+    void filterSurvivesMoreRevocationsThanExpected() {
+        TokenRevocationService small = new TokenRevocationService(store, 10, 0.01);
+        for (int i = 0; i < 50; i++) {
+            store.revoke("jti-" + i, Instant.now().plusSeconds(60));
+        }
+        small.init();
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(small.isRevoked("jti-" + i)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package practice.bookrentalapp.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import practice.bookrentalapp.config.JpaConfig;
+import practice.bookrentalapp.model.entities.Book;
+import practice.bookrentalapp.repositories.BookRepository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ingestion benchmark: statements and rows per second for saving books with their authors and categories, with
+ * JDBC batching off (one statement per row, as under IDENTITY ids) and with the configured batch size.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(JpaConfig.class)
+@Slf4j
+class BookBatchInsertTest {
+    private static final int BOOKS = 2_000;
+    // Each book writes one books row, two authors rows and two categories rows
+    private static final int ROWS = BOOKS * 5;
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void batchingCutsStatementsPerIngestedRow() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        Session session = entityManager.unwrap(Session.class);
+
+        session.setJdbcBatchSize(1);
+        long unbatched = ingest(statistics, "unbatched");
+        session.setJdbcBatchSize(null);
+        long batched = ingest(statistics, "batched");
+
+        assertThat(unbatched).isGreaterThanOrEqualTo(ROWS);
+        // Inserts go out in batches of 50, plus one sequence round trip per 50 ids
+        assertThat(batched).isLessThan(ROWS / 10);
+    }
+
+    private long ingest(Statistics statistics, String label) {
+        List<Book> books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle(label + " " + i);
+            book.setAuthors(new HashSet<>(Set.of(label + " author " + i, "Editor " + i)));
+            book.setCategories(new HashSet<>(Set.of("Fiction", "Shelf " + (i % 50))));
+            book.setTotalCopies(1);
+            books.add(book);
+        }
+        statistics.clear();
+        long start = System.nanoTime();
+        bookRepository.saveAll(books);
+        entityManager.flush();
+        long elapsed = System.nanoTime() - start;
+        entityManager.clear();
+
+        long statements = statistics.getPrepareStatementCount();
+        log.info("{}: {} rows with {} statements in {} ms ({} rows/s)", label, ROWS, statements,
+                elapsed / 1_000_000, ROWS * 1_000_000_000L / Math.max(elapsed, 1));
+        return statements;
+    }
+}
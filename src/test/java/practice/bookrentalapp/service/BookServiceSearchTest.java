@@ -0,0 +1,199 @@
+package practice.bookrentalapp.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import practice.bookrentalapp.config.JpaConfig;
+import practice.bookrentalapp.model.dto.request.BookFilter;
+import practice.bookrentalapp.model.dto.response.CursorPageResponse;
+import practice.bookrentalapp.model.dto.response.PageBookResponse;
+import practice.bookrentalapp.model.entities.Book;
+import practice.bookrentalapp.repositories.BookRepository;
+import practice.bookrentalapp.search.BookSearchIndex;
+import practice.bookrentalapp.search.BookSnapshot;
+import practice.bookrentalapp.search.CoRentalIndex;
+import practice.bookrentalapp.search.SuggestionIndex;
+import practice.bookrentalapp.utils.EntityDtoMapper;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The database fallback must return the same books, in the same order, as the in-memory search index, and
+ * read each page with a fixed number of statements.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(JpaConfig.class)
+class BookServiceSearchTest {
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BookService databaseService;
+    private BookService indexService;
+
+    @BeforeEach
+    void setUp() {
+        List<Book> books = bookRepository.saveAllAndFlush(List.of(
+                book("The Lord of the Rings", Set.of("J. R. R. Tolkien"), Set.of("Fantasy", "Classics"), 4.5),
+                book("lord of the flies", Set.of("William Golding"), Set.of("fantasy"), 3.7),
+                book("Les Misérables", Set.of("Victor Hugo"), Set.of("Classics"), null),
+                book("Rings of Saturn", Set.of("W. G. Sebald"), Set.of("Travel"), 4.1),
+                book("Lordship", Set.of("Anne Tolkien-Jones", "Mark Lord"), Set.of("Science-Fiction"), 2.0)));
+        entityManager.clear();
+
+        databaseService = service(new BookSearchIndex());
+        BookSearchIndex index = new BookSearchIndex();
+        index.upsertAll(books.stream().map(BookSnapshot::from).toList());
+        index.markReady();
+        indexService = service(index);
+    }
+
+    @Test
+    void titleTokensMatchInAnyOrderAndCase() {
+        assertSameResults(filter -> filter.setTitle("RINGS lord"));
+        assertSameResults(filter -> filter.setTitle("lord"));
+        assertSameResults(filter -> filter.setTitle("miserables"));
+    }
+
+    @Test
+    void authorTokensMatchAcrossAuthors() {
+        assertSameResults(filter -> filter.setAuthor("tolkien"));
+        assertSameResults(filter -> filter.setAuthor("mark jones"));
+    }
+
+    @Test
+    void categoriesMatchAfterNormalization() {
+        assertSameResults(filter -> filter.setCategories(List.of("FANTASY")));
+        assertSameResults(filter -> filter.setCategories(List.of("science fiction", "travel")));
+    }
+
+    @Test
+    void sortsAgreeIncludingNullsLast() {
+        for (String orderBy : List.of("title", "authors", "publisher", "averageRating", "pageCount")) {
+            for (String dir : List.of("asc", "desc")) {
+                assertSameResults(filter -> {
+                    filter.setOrderBy(orderBy);
+                    filter.setDir(dir);
+                });
+            }
+        }
+    }
+
+    @Test
+    void relevanceFallbackDoesNotChangeTheCallersFilter() {
+        BookFilter filter = new BookFilter();
+        filter.setOrderBy("relevance");
+
+        databaseService.getBooks(filter);
+
+        assertThat(filter.getOrderBy()).isEqualTo("relevance");
+    }
+
+    @Test
+    void databasePageTakesTheSameStatementsWhateverItsSize() {
+        List<Book> more = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            more.add(book("Volume " + i, Set.of("Author " + i, "Editor " + i), Set.of("Series"), null));
+        }
+        bookRepository.saveAllAndFlush(more);
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        List<Long> statements = new ArrayList<>();
+        for (int size : List.of(1, 10, 40)) {
+            BookFilter filter = new BookFilter();
+            filter.setSize(size);
+            statistics.clear();
+            assertThat(databaseService.getBooks(filter).getContent()).hasSize(size);
+            statements.add(statistics.getPrepareStatementCount());
+        }
+
+        // ids, count, listing columns, authors, categories
+        assertThat(statements).containsOnly(5L);
+    }
+
+    @Test
+    void keysetPagesFollowTheSameCaseInsensitiveOrderOnBothPaths() throws Exception {
+        for (String dir : List.of("asc", "desc")) {
+            // Titles are distinct and present, so the keyset order must equal the offset listing's
+            BookFilter offset = new BookFilter();
+            offset.setDir(dir);
+            offset.setSize(40);
+            List<Long> expected = indexService.getBooks(offset).map(PageBookResponse::getBookId).getContent();
+
+            assertThat(seekAll("title", dir, indexService, indexService)).isEqualTo(expected);
+            assertThat(seekAll("title", dir, databaseService, databaseService)).isEqualTo(expected);
+            // A cursor handed out by one path continues correctly on the other
+            assertThat(seekAll("title", dir, indexService, databaseService)).isEqualTo(expected);
+            assertThat(seekAll("title", dir, databaseService, indexService)).isEqualTo(expected);
+
+            List<Long> byPublisher = seekAll("publisher", dir, indexService, indexService);
+            assertThat(byPublisher).hasSize(expected.size()).doesNotHaveDuplicates();
+            assertThat(seekAll("publisher", dir, databaseService, databaseService)).isEqualTo(byPublisher);
+        }
+    }
+
+    private static List<Long> seekAll(String orderBy, String dir, BookService first, BookService rest) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        BookService service = first;
+        do {
+            BookFilter filter = new BookFilter();
+            filter.setSeek(true);
+            filter.setOrderBy(orderBy);
+            filter.setDir(dir);
+            filter.setSize(2);
+            filter.setCursor(cursor);
+            CursorPageResponse<PageBookResponse> page = service.seekBooks(filter);
+            page.getContent().forEach(book -> ids.add(book.getBookId()));
+            cursor = page.getNextCursor();
+            service = rest;
+        } while (cursor != null);
+        return ids;
+    }
+
+    private void assertSameResults(Consumer<BookFilter> criteria) {
+        BookFilter filter = new BookFilter();
+        criteria.accept(filter);
+        List<Long> fromIndex = indexService.getBooks(filter).map(PageBookResponse::getBookId).getContent();
+        List<Long> fromDatabase = databaseService.getBooks(filter).map(PageBookResponse::getBookId).getContent();
+        assertThat(fromDatabase).as("%s", filter).isEqualTo(fromIndex);
+    }
+
+    private BookService service(BookSearchIndex index) {
+        BookService service = new BookService(bookRepository, mock(EntityDtoMapper.class), index,
+                mock(SuggestionIndex.class), mock(CoRentalIndex.class), mock(CatalogResponseCache.class),
+                mock(CatalogDeduplicator.class), mock(ApplicationEventPublisher.class), transactionManager);
+        ReflectionTestUtils.setField(service, "entityManager", entityManager);
+        return service;
+    }
+
+    private static Book book(String title, Set<String> authors, Set<String> categories, Double rating) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthors(new HashSet<>(authors));
+        book.setCategories(new HashSet<>(categories));
+        book.setAverageRating(rating);
+        book.setPublisher(title.length() % 2 == 0 ? "penguin" : "Penguin Classics");
+        book.setTotalCopies(1);
+        return book;
+    }
+}
@@ -0,0 +1,48 @@
+package practice.bookrentalapp.service;
+
+import org.junit.jupiter.api.Test;
+import practice.bookrentalapp.model.entities.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogDeduplicatorTest {
+
+    @Test
+    void collectorKeepsTheFirstOfferInOfferOrder() {
+        CatalogDeduplicator.Collector collector = new CatalogDeduplicator.Collector();
+        List<String> titles = new ArrayList<>();
+        // Enough distinct keys that hash order would differ from offer order
+        IntStream.range(0, 200).forEach(i -> titles.add("Title " + (199 - i)));
+
+        titles.forEach(title -> collector.offer(book(title, null)));
+        assertThat(collector.offer(book("  TITLE 5 ", null))).isFalse();
+
+        assertThat(collector.books()).extracting(Book::getTitle).containsExactlyElementsOf(titles);
+        assertThat(collector.duplicates()).isEqualTo(1);
+    }
+
+    @Test
+    void sameIsbnUnderAnotherTitleIsADuplicate() {
+        CatalogDeduplicator.Collector collector = new CatalogDeduplicator.Collector();
+
+        assertThat(collector.offer(book("Dune", "978-0-441-17271-9"))).isTrue();
+        assertThat(collector.offer(book("Dune (Deluxe Edition)", "9780441172719"))).isFalse();
+        // A title duplicate does not keep its ISBN claimed, so a later book with that ISBN is still accepted
+        assertThat(collector.offer(book("dune", "9780000000001"))).isFalse();
+        assertThat(collector.offer(book("Emma", "9780000000001"))).isTrue();
+
+        assertThat(collector.books()).extracting(Book::getTitle).containsExactly("Dune", "Emma");
+        assertThat(collector.duplicates()).isEqualTo(2);
+    }
+
+    private static Book book(String title, String isbn) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setISBN(isbn);
+        return book;
+    }
+}
@@ -0,0 +1,167 @@
+package practice.bookrentalapp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import practice.bookrentalapp.config.JpaConfig;
+import practice.bookrentalapp.model.entities.Book;
+import practice.bookrentalapp.model.enums.ExportFormat;
+import practice.bookrentalapp.repositories.BookRepository;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the export inside the test transaction, the same way it joins the request's EntityManager when
+ * open-in-view is on. Memory stays bounded because each chunk is a fixed number of rows read by a fixed number of
+ * queries and leaves nothing in the persistence context; the heap figure is only logged.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(JpaConfig.class)
+@Slf4j
+class CatalogExportServiceTest {
+    private static final int BOOKS = 10_000;
+    private static final int CHUNK_SIZE = 250;
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CatalogExportService exportService;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @BeforeEach
+    void setUp() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle("Book, \"" + i + "\"");
+            book.setAuthors(new HashSet<>(Set.of("Author " + i, "Co-author " + (i % 100))));
+            book.setCategories(new HashSet<>(Set.of("Category " + (i % 20))));
+            book.setTotalCopies(3);
+            book.setCopiesLent(i % 3);
+            books.add(book);
+            if (books.size() == 1_000) {
+                bookRepository.saveAllAndFlush(books);
+                entityManager.clear();
+                books.clear();
+            }
+        }
+        exportService = new CatalogExportService(bookRepository, objectMapper, transactionManager);
+        ReflectionTestUtils.setField(exportService, "chunkSize", CHUNK_SIZE);
+    }
+
+    @Test
+    void exportReadsFixedSizeChunksAndKeepsNothingManaged() throws Exception {
+        Session session = entityManager.unwrap(Session.class);
+        Statistics statistics = session.getSessionFactory().getStatistics();
+        List<Integer> rowsPerChunk = new ArrayList<>();
+        List<Long> statementsPerChunk = new ArrayList<>();
+        List<Integer> managedEntities = new ArrayList<>();
+        List<Long> usedHeap = new ArrayList<>();
+        int[] rows = new int[1];
+        statistics.clear();
+        OutputStream counting = new OutputStream() {
+            @Override
+            public void write(int b) {
+                if (b == '\n') {
+                    rows[0]++;
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                for (int i = off; i < off + len; i++) {
+                    write(b[i]);
+                }
+            }
+
+            // The export flushes once per chunk
+            @Override
+            public void flush() {
+                rowsPerChunk.add(rows[0]);
+                rows[0] = 0;
+                statementsPerChunk.add(statistics.getPrepareStatementCount());
+                statistics.clear();
+                managedEntities.add(session.getStatistics().getEntityCount());
+                usedHeap.add(usedHeap());
+            }
+        };
+
+        exportService.export(counting, ExportFormat.NDJSON, false);
+
+        assertThat(rowsPerChunk).hasSize(BOOKS / CHUNK_SIZE).containsOnly(CHUNK_SIZE);
+        // One query for the rows, one for their authors and one for their categories
+        assertThat(statementsPerChunk).containsOnly(3L);
+        assertThat(managedEntities).containsOnly(0);
+        log.info("Used heap after the first chunk {} KB, after the last {} KB", usedHeap.get(0) / 1024,
+                usedHeap.get(usedHeap.size() - 1) / 1024);
+    }
+
+    @Test
+    void ndjsonExportHasEveryBookWithItsCollections() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        exportService.export(target, ExportFormat.NDJSON, true);
+
+        List<String> lines = lines(target.toByteArray());
+        assertThat(lines).hasSize(BOOKS);
+        long lastId = 0;
+        for (String line : lines) {
+            JsonNode row = objectMapper.readTree(line);
+            assertThat(row.get("id").asLong()).isGreaterThan(lastId);
+            lastId = row.get("id").asLong();
+            assertThat(row.get("authors")).hasSize(2);
+            assertThat(row.get("categories")).hasSize(1);
+            assertThat(row.get("totalCopies").asInt()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void csvExportQuotesTextAndWritesAHeader() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        exportService.export(target, ExportFormat.CSV, true);
+
+        List<String> lines = lines(target.toByteArray());
+        assertThat(lines).hasSize(BOOKS + 1);
+        assertThat(lines.get(0)).startsWith("id,title,authors,categories,");
+        assertThat(lines.get(1)).contains(",\"Book, \"\"0\"\"\",");
+    }
+
+    private static List<String> lines(byte[] gzipped) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(gzipped)), StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,199 @@
+package practice.bookrentalapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import practice.bookrentalapp.model.dto.request.CatalogImportRequest;
+import practice.bookrentalapp.model.entities.Book;
+import practice.bookrentalapp.model.enums.IngestionStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogImportServiceTest {
+    private static final String CSV_HEADER =
+            "title,authors,publisher,publishedDate,isbn13,pageCount,printType,categories,averageRating,language";
+
+    @TempDir
+    Path root;
+
+    private final BookService bookService = mock(BookService.class);
+    private final ExecutorService executorService = mock(ExecutorService.class);
+    private final List<List<Book>> savedChunks = new ArrayList<>();
+    private Path importDir;
+    private CatalogImportService importService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        importDir = Files.createDirectory(root.resolve("imports"));
+        IngestionJobRegistry jobRegistry = new IngestionJobRegistry();
+        ReflectionTestUtils.setField(jobRegistry, "retention", Duration.ofHours(1));
+        importService = new CatalogImportService(bookService, new VolumeInfoConverter(), jobRegistry, executorService,
+                new ObjectMapper());
+        ReflectionTestUtils.setField(importService, "importDir", importDir.toString());
+        ReflectionTestUtils.setField(importService, "chunkSize", 1_000);
+
+        // Run the import on the calling thread so every test sees the finished job
+        when(executorService.submit(any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        });
+        when(bookService.saveBooksBatch(anyCollection())).thenAnswer(invocation -> {
+            List<Book> chunk = new ArrayList<>(invocation.<Collection<Book>>getArgument(0));
+            savedChunks.add(chunk);
+            return new BookService.IngestResult(chunk, List.of(), 0);
+        });
+    }
+
+    @Test
+    void csvFieldsMayBeQuotedWithEmbeddedCommasAndQuotes() throws Exception {
+        write("books.csv", CSV_HEADER,
+                "\"Dune, Messiah\",\"Herbert, Frank; Brian Herbert\",\"Ace \"\"Classics\"\"\",1969-07,9780441172696,"
+                        + "336,BOOK,Science Fiction;Classics,4.2,en",
+                "Walden,Henry Thoreau,,1854,,,BOOK,,,en");
+
+        IngestionJob job = importService.startImport(request("books.csv", "csv"));
+
+        assertThat(job.getStatus()).isEqualTo(IngestionStatus.COMPLETED);
+        assertThat(job.getSaved().get()).isEqualTo(2);
+        List<Book> books = savedChunks.get(0);
+        Book dune = books.get(0);
+        assertThat(dune.getTitle()).isEqualTo("Dune, Messiah");
+        assertThat(dune.getAuthors()).containsExactlyInAnyOrder("Herbert, Frank", "Brian Herbert");
+        assertThat(dune.getPublisher()).isEqualTo("Ace \"Classics\"");
+        assertThat(dune.getPublishedDate()).isEqualTo(LocalDate.of(1969, 7, 1));
+        assertThat(dune.getISBN()).isEqualTo("9780441172696");
+        assertThat(dune.getPageCount()).isEqualTo(336);
+        assertThat(dune.getCategories()).containsExactlyInAnyOrder("Science Fiction", "Classics");
+        assertThat(dune.getAverageRating()).isEqualTo(4.2);
+        assertThat(dune.getTotalCopies()).isEqualTo(2);
+        Book walden = books.get(1);
+        assertThat(walden.getPublisher()).isNull();
+        assertThat(walden.getPublishedDate()).isEqualTo(LocalDate.of(1854, 1, 1));
+        assertThat(walden.getISBN()).isNull();
+        assertThat(walden.getCategories()).isEmpty();
+    }
+
+    @Test
+    void malformedAndUnadmittedCsvRowsAreCountedWithoutStoppingTheImport() throws Exception {
+        write("books.csv", CSV_HEADER,
+                "Dune,Frank Herbert,,1965,,many,BOOK,,,en",
+                "Le Petit Prince,Saint-Exupery,,1943,,,BOOK,,,fr",
+                ",Nobody,,,,,BOOK,,,en",
+                "",
+                "Emma,Jane Austen,,1815,,,BOOK,,,en");
+
+        IngestionJob job = importService.startImport(request("books.csv", "csv"));
+
+        assertThat(job.getStatus()).isEqualTo(IngestionStatus.COMPLETED);
+        assertThat(job.getRead().get()).isEqualTo(4);
+        assertThat(job.getFailed().get()).isEqualTo(1);
+        assertThat(job.getSkipped().get()).isEqualTo(2);
+        assertThat(job.getSaved().get()).isEqualTo(1);
+        assertThat(savedChunks).singleElement().satisfies(chunk ->
+                assertThat(chunk).extracting(Book::getTitle).containsExactly("Emma"));
+    }
+
+    @Test
+    void jsonLinesAcceptBareAndWrappedVolumesAndCountInvalidLines() throws Exception {
+        write("books.jsonl",
+                "{\"title\":\"Dune\",\"language\":\"en\",\"printType\":\"BOOK\",\"unknownField\":1}",
+                "{\"id\":\"abc\",\"volumeInfo\":{\"title\":\"Emma\",\"language\":\"en\",\"printType\":\"BOOK\","
+                        + "\"industryIdentifiers\":[{\"type\":\"ISBN_10\",\"identifier\":\"0141439580\"},"
+                        + "{\"type\":\"ISBN_13\",\"identifier\":\"9780141439587\"}]}}",
+                "{\"title\":\"Broken\",",
+                "{\"title\":\"Maus\",\"language\":\"en\",\"printType\":\"MAGAZINE\"}");
+
+        IngestionJob job = importService.startImport(request("books.jsonl", "jsonl"));
+
+        assertThat(job.getStatus()).isEqualTo(IngestionStatus.COMPLETED);
+        assertThat(job.getFailed().get()).isEqualTo(1);
+        assertThat(job.getSkipped().get()).isEqualTo(1);
+        assertThat(savedChunks.get(0)).extracting(Book::getTitle).containsExactly("Dune", "Emma");
+        assertThat(savedChunks.get(0).get(1).getISBN()).isEqualTo("9780141439587");
+    }
+
+    @Test
+    void filesOutsideTheImportDirectoryAreRejected() throws Exception {
+        Files.writeString(root.resolve("secret.jsonl"), "{\"title\":\"Secret\"}\n");
+
+        assertThatThrownBy(() -> importService.startImport(request("../secret.jsonl", "jsonl")))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("not found");
+        assertThatThrownBy(() -> importService.startImport(request(root.resolve("secret.jsonl").toString(), "jsonl")))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> importService.startImport(request("missing.jsonl", "jsonl")))
+                .isInstanceOf(BadRequestException.class);
+        verify(executorService, never()).submit(any(Runnable.class));
+    }
+
+    @Test
+    void importsAreDisabledWithoutAnImportDirectory() {
+        ReflectionTestUtils.setField(importService, "importDir", "");
+
+        assertThatThrownBy(() -> importService.startImport(request("books.jsonl", "jsonl")))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("catalog.import.dir");
+    }
+
+    @Test
+    void booksAreSavedInChunksAndAFailedChunkOnlyFailsItsOwnBooks() throws Exception {
+        ReflectionTestUtils.setField(importService, "chunkSize", 3);
+        write("books.jsonl", IntStream.range(0, 7)
+                .mapToObj(i -> "{\"title\":\"Book " + i + "\",\"language\":\"en\",\"printType\":\"BOOK\"}")
+                .toArray(String[]::new));
+        // The first chunk holds one duplicate, the second fails to save
+        doAnswer(invocation -> {
+            List<Book> chunk = new ArrayList<>(invocation.<Collection<Book>>getArgument(0));
+            savedChunks.add(chunk);
+            return new BookService.IngestResult(chunk.subList(1, chunk.size()), List.of(), 1);
+        }).doThrow(new IllegalStateException("database unavailable")).doAnswer(invocation -> {
+            List<Book> chunk = new ArrayList<>(invocation.<Collection<Book>>getArgument(0));
+            savedChunks.add(chunk);
+            return new BookService.IngestResult(chunk, List.of(), 0);
+        }).when(bookService).saveBooksBatch(anyCollection());
+
+        IngestionJob job = importService.startImport(request("books.jsonl", "jsonl"));
+
+        assertThat(job.getStatus()).isEqualTo(IngestionStatus.COMPLETED);
+        assertThat(savedChunks).extracting(List::size).containsExactly(3, 1);
+        assertThat(savedChunks.get(1)).extracting(Book::getTitle).containsExactly("Book 6");
+        assertThat(job.getRead().get()).isEqualTo(7);
+        assertThat(job.getSaved().get()).isEqualTo(3);
+        assertThat(job.getDuplicates().get()).isEqualTo(1);
+        assertThat(job.getFailed().get()).isEqualTo(3);
+    }
+
+    private void write(String name, String... lines) throws IOException {
+        Files.write(importDir.resolve(name), List.of(lines));
+    }
+
+    private static CatalogImportRequest request(String file, String format) {
+        CatalogImportRequest request = new CatalogImportRequest();
+        request.setFile(file);
+        request.setFormat(format);
+        request.setCopies(2);
+        return request;
+    }
+}
@@ -0,0 +1,195 @@
+package practice.bookrentalapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import practice.bookrentalapp.config.JpaConfig;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse.VolumeInfo;
+import practice.bookrentalapp.model.entities.Book;
+import practice.bookrentalapp.model.entities.Rental;
+import practice.bookrentalapp.model.enums.RentalStatus;
+import practice.bookrentalapp.model.events.CatalogChangedEvent;
+import practice.bookrentalapp.repositories.BookRepository;
+import practice.bookrentalapp.repositories.RentalRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@Import(JpaConfig.class)
+class CatalogMetadataRefresherTest {
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private RentalRepository rentalRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final GoogleBooksClient googleBooksClient = mock(GoogleBooksClient.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LocalDateTime monthAgo = LocalDateTime.now().minusDays(30);
+    private CatalogMetadataRefresher refresher;
+
+    @BeforeEach
+    void setUp() {
+        refresher = new CatalogMetadataRefresher(bookRepository, googleBooksClient, eventPublisher, transactionManager,
+                meterRegistry, 1_000);
+        ReflectionTestUtils.setField(refresher, "entityManager", entityManager);
+        ReflectionTestUtils.setField(refresher, "enabled", true);
+        ReflectionTestUtils.setField(refresher, "batchSize", 50);
+        ReflectionTestUtils.setField(refresher, "minAge", Duration.ofDays(7));
+    }
+
+    @Test
+    void candidatesAreMostRentedFirstThenLongestUnchecked() {
+        Book rarelyRented = book("Emma", "1001", monthAgo);
+        Book oftenRented = book("Dune", "1002", LocalDateTime.now().minusDays(10));
+        Book neverChecked = book("Walden", "1003", null);
+        Book recentlyChecked = book("Ulysses", "1004", LocalDateTime.now().minusDays(1));
+        Book withoutIsbn = book("Beloved", null, null);
+        rent(oftenRented, recentlyChecked, withoutIsbn);
+        rent(oftenRented);
+        rent(rarelyRented);
+        entityManager.flush();
+
+        List<Object[]> candidates = bookRepository.findMetadataRefreshCandidates(LocalDateTime.now().minusDays(7),
+                PageRequest.of(0, 10));
+
+        assertThat(candidates).extracting(row -> row[0])
+                .containsExactly(oftenRented.getId(), rarelyRented.getId(), neverChecked.getId());
+        assertThat(candidates.get(0)).containsExactly(oftenRented.getId(), "1002", "\"etag-1002\"", 2L);
+    }
+
+    @Test
+    void changedFieldsAreWrittenWithoutOverwritingReservedCopies() throws Exception {
+        Book book = book("Dune", "1002", monthAgo);
+        entityManager.flush();
+        LocalDateTime updatedAt = reload(book).getUpdatedAt();
+        entityManager.clear();
+        // The refresher's batch below still holds the book as loaded before this reservation committed
+        Book stale = bookRepository.findById(book.getId()).orElseThrow();
+        when(googleBooksClient.lookupByIsbn("1002", "\"etag-1002\"")).thenAnswer(invocation -> {
+            bookRepository.reserveCopies(List.of(stale.getId()), LocalDateTime.now());
+            return new GoogleBooksClient.VolumeLookup(false, volume(4.5, 320, "Science Fiction"), "\"etag-new\"");
+        });
+
+        refresher.refresh();
+
+        Book refreshed = reload(book);
+        assertThat(refreshed.getCopiesLent()).isEqualTo(1);
+        assertThat(refreshed.getTotalCopies()).isEqualTo(2);
+        assertThat(refreshed.getAverageRating()).isEqualTo(4.5);
+        assertThat(refreshed.getPageCount()).isEqualTo(320);
+        assertThat(refreshed.getCategories()).containsExactly("Science Fiction");
+        assertThat(refreshed.getCategoryKey()).isEqualTo(Book.categoryKey(Set.of("Science Fiction")));
+        assertThat(refreshed.getMetadataEtag()).isEqualTo("\"etag-new\"");
+        assertThat(refreshed.getMetadataCheckedAt()).isAfter(monthAgo);
+        assertThat(refreshed.getUpdatedAt()).isAfter(updatedAt);
+
+        ArgumentCaptor<CatalogChangedEvent> event = ArgumentCaptor.forClass(CatalogChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().upserted()).singleElement().satisfies(snapshot -> {
+            assertThat(snapshot.averageRating()).isEqualTo(4.5);
+            assertThat(snapshot.copiesLent()).isEqualTo(1);
+        });
+        assertThat(lookups("changed")).isEqualTo(1);
+    }
+
+    @Test
+    void notModifiedOnlyStampsTheCheckTime() throws Exception {
+        Book book = book("Emma", "1001", monthAgo);
+        entityManager.flush();
+        LocalDateTime updatedAt = reload(book).getUpdatedAt();
+        when(googleBooksClient.lookupByIsbn("1001", "\"etag-1001\""))
+                .thenReturn(new GoogleBooksClient.VolumeLookup(true, null, "\"etag-1001\""));
+
+        refresher.refresh();
+
+        Book checked = reload(book);
+        assertThat(checked.getMetadataCheckedAt()).isAfter(monthAgo);
+        assertThat(checked.getMetadataEtag()).isEqualTo("\"etag-1001\"");
+        assertThat(checked.getAverageRating()).isEqualTo(3.0);
+        assertThat(checked.getUpdatedAt()).isEqualTo(updatedAt);
+        verify(eventPublisher, never()).publishEvent(any(CatalogChangedEvent.class));
+        assertThat(lookups("not-modified")).isEqualTo(1);
+    }
+
+    @Test
+    void unchangedVolumeKeepsTheBookButStoresTheNewEtag() throws Exception {
+        Book book = book("Walden", "1003", null);
+        entityManager.flush();
+        LocalDateTime updatedAt = reload(book).getUpdatedAt();
+        when(googleBooksClient.lookupByIsbn("1003", "\"etag-1003\""))
+                .thenReturn(new GoogleBooksClient.VolumeLookup(false, volume(3.0, 100, "Fiction"), "\"etag-new\""));
+
+        refresher.refresh();
+
+        Book checked = reload(book);
+        assertThat(checked.getMetadataEtag()).isEqualTo("\"etag-new\"");
+        assertThat(checked.getMetadataCheckedAt()).isNotNull();
+        assertThat(checked.getUpdatedAt()).isEqualTo(updatedAt);
+        verify(eventPublisher, never()).publishEvent(any(CatalogChangedEvent.class));
+        assertThat(lookups("unchanged")).isEqualTo(1);
+    }
+
+    private Book book(String title, String isbn, LocalDateTime checkedAt) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setISBN(isbn);
+        book.setAverageRating(3.0);
+        book.setPageCount(100);
+        book.setCategories(new HashSet<>(Set.of("Fiction")));
+        book.setAuthors(new HashSet<>(Set.of("Author of " + title)));
+        book.setTotalCopies(2);
+        book.setMetadataCheckedAt(checkedAt);
+        book.setMetadataEtag(isbn == null ? null : "\"etag-" + isbn + "\"");
+        return bookRepository.save(book);
+    }
+
+    private void rent(Book... books) {
+        Rental rental = new Rental();
+        rental.setStatus(RentalStatus.ACTIVE);
+        rental.setBooks(new HashSet<>(List.of(books)));
+        rentalRepository.save(rental);
+    }
+
+    private Book reload(Book book) {
+        entityManager.flush();
+        entityManager.clear();
+        return bookRepository.findById(book.getId()).orElseThrow();
+    }
+
+    private double lookups(String outcome) {
+        return meterRegistry.get("catalog.refresh.lookups").tag("outcome", outcome).counter().count();
+    }
+
+    private static VolumeInfo volume(double averageRating, int pageCount, String category) {
+        VolumeInfo volumeInfo = new VolumeInfo();
+        volumeInfo.setAverageRating(averageRating);
+        volumeInfo.setPageCount(pageCount);
+        volumeInfo.setCategories(List.of(category));
+        return volumeInfo;
+    }
+}
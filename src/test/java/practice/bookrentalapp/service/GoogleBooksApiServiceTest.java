@@ -0,0 +1,288 @@
+package practice.bookrentalapp.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+import practice.bookrentalapp.config.AppConfig;
+import practice.bookrentalapp.model.dto.request.BookSearchRequest;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse;
+import practice.bookrentalapp.model.entities.Book;
+import practice.bookrentalapp.model.enums.IngestionStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs ingestion against a local stub of the Google Books API that answers each page after a fixed delay.
+ */
+@Slf4j
+class GoogleBooksApiServiceTest {
+    private static final int TOTAL_ITEMS = 400;
+    private static final long PAGE_DELAY_MS = 50;
+    private static final Pattern START_INDEX = Pattern.compile("startIndex=(\\d+)");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final List<Book> saved = Collections.synchronizedList(new ArrayList<>());
+    private HttpServer server;
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/books/v1/volumes", this::servePage);
+        executorService = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executorService);
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void concurrentPagesArriveInOrder() throws Exception {
+        long sequential = ingest(1);
+        assertThat(peakInFlight.get()).isEqualTo(1);
+        assertBooksInOrder();
+
+        long concurrent = ingest(4);
+        assertThat(peakInFlight.get()).isBetween(2, 4);
+        assertBooksInOrder();
+
+        log.info("{} pages: {} ms sequential, {} ms with 4 in flight ({}x)", TOTAL_ITEMS / GoogleBooksClient.PAGE_SIZE,
+                sequential, concurrent, String.format("%.1f", (double) sequential / concurrent));
+        assertThat(concurrent).isLessThan(sequential);
+    }
+
+    @Test
+    void groupConcurrencyBelowOneIsRejectedAtStartup() {
+        GoogleBooksApiService service = service(0);
+
+        assertThatThrownBy(service::validateSettings)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("google.books.group-concurrency");
+    }
+
+    /**
+     * Fetches one result page over and over from a stub without delay: the pooled client asking for the projected
+     * fields and stream-parsing them, against a plain request for the full page deserialized and filtered
+     * afterwards. Logs bytes allocated per page on the calling thread and pages per second for each.
+     */
+    @Test
+    void pageFetchBenchmark() throws Exception {
+        byte[] fullPage = benchmarkPage(false);
+        byte[] projectedPage = benchmarkPage(true);
+        server.createContext("/bench/v1/volumes", exchange -> respond(exchange,
+                exchange.getRequestURI().getRawQuery().contains("fields=") ? projectedPage : fullPage));
+        String baseUrl = "http://localhost:" + server.getAddress().getPort() + "/bench/v1";
+        RestTemplate restTemplate = new AppConfig().restTemplate(Duration.ofSeconds(5), Duration.ofSeconds(30));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GoogleBooksClient client = new GoogleBooksClient(restTemplate,
+                new GoogleBooksPageCache(objectMapper, meterRegistry), new GoogleBooksPageParser(objectMapper),
+                meterRegistry, 8, 1_000_000, Duration.ofSeconds(1), 1, Duration.ofMillis(10), Duration.ofMillis(10),
+                5, Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(client, "apiKey", "test-key");
+        ReflectionTestUtils.setField(client, "baseUrl", baseUrl);
+        BookSearchRequest.SearchGroup group = new BookSearchRequest.SearchGroup();
+        group.setAuthor("stub");
+        ObjectMapper fullMapper = objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        String fullUrl = baseUrl + "/volumes?q=inauthor:stub&startIndex=0&maxResults=" + GoogleBooksClient.PAGE_SIZE;
+
+        PageBenchmark streamed = measure(() -> client.fetchPage(group, 0).getItems().size());
+        PageBenchmark full = measure(() -> {
+            GoogleBooksResponse page = fullMapper.readValue(restTemplate.getForObject(fullUrl, byte[].class),
+                    GoogleBooksResponse.class);
+            return (int) page.getItems().stream()
+                    .map(GoogleBooksResponse.Item::getVolumeInfo)
+                    .filter(volume -> VolumeInfoConverter.isAdmitted(volume.getLanguage(), volume.getPrintType()))
+                    .count();
+        });
+
+        assertThat(streamed.admitted()).isEqualTo(full.admitted()).isPositive();
+        log.info("Full page, deserialized then filtered: {} KB allocated per page, {} pages/s",
+                full.bytesPerPage() / 1024, full.pagesPerSecond());
+        log.info("Projected fields, stream-parsed: {} KB allocated per page, {} pages/s",
+                streamed.bytesPerPage() / 1024, streamed.pagesPerSecond());
+    }
+
+    private record PageBenchmark(long bytesPerPage, long pagesPerSecond, int admitted) {
+    }
+
+    private static PageBenchmark measure(Callable<Integer> fetch) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < 200; i++) {
+            fetch.call();
+        }
+        int pages = 1_000;
+        int admitted = 0;
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < pages; i++) {
+            admitted = fetch.call();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new PageBenchmark(allocated / pages, pages * 1_000_000_000L / Math.max(elapsed, 1), admitted);
+    }
+
+    private long ingest(int groupConcurrency) throws InterruptedException {
+        saved.clear();
+        peakInFlight.set(0);
+        GoogleBooksApiService service = service(groupConcurrency);
+        BookSearchRequest request = new BookSearchRequest();
+        BookSearchRequest.SearchGroup group = new BookSearchRequest.SearchGroup();
+        group.setAuthor("stub");
+        request.setSearchGroups(List.of(group));
+
+        long start = System.nanoTime();
+        IngestionJob job = service.startIngestion(request);
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!job.isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(job.getStatus()).isEqualTo(IngestionStatus.COMPLETED);
+        assertThat(job.getPagesFetched().get()).isEqualTo(TOTAL_ITEMS / GoogleBooksClient.PAGE_SIZE);
+        assertThat(saved).hasSize(TOTAL_ITEMS);
+        return elapsedMs;
+    }
+
+    // Pages follow start-index order and deduplication keeps the order of books within each page
+    private void assertBooksInOrder() {
+        List<String> expected = IntStream.range(0, TOTAL_ITEMS).mapToObj(i -> "Book " + i).toList();
+        assertThat(saved).extracting(Book::getTitle).containsExactlyElementsOf(expected);
+    }
+
+    private GoogleBooksApiService service(int groupConcurrency) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GoogleBooksClient client = new GoogleBooksClient(new RestTemplate(),
+                new GoogleBooksPageCache(objectMapper, meterRegistry), new GoogleBooksPageParser(objectMapper),
+                meterRegistry, 8, 1_000, Duration.ofSeconds(1), 1, Duration.ofMillis(10), Duration.ofMillis(10),
+                5, Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(client, "apiKey", "test-key");
+        ReflectionTestUtils.setField(client, "baseUrl", "http://localhost:" + server.getAddress().getPort() + "/books/v1");
+
+        BookService bookService = mock(BookService.class);
+        when(bookService.saveBooksBatch(anyCollection())).thenAnswer(invocation -> {
+            Collection<Book> books = invocation.getArgument(0);
+            saved.addAll(books);
+            return new BookService.IngestResult(new ArrayList<>(books), List.of(), 0);
+        });
+        IngestionJobRegistry jobRegistry = new IngestionJobRegistry();
+        ReflectionTestUtils.setField(jobRegistry, "retention", Duration.ofHours(1));
+
+        GoogleBooksApiService service = new GoogleBooksApiService(bookService, client, executorService,
+                new VolumeInfoConverter(), jobRegistry);
+        ReflectionTestUtils.setField(service, "groupConcurrency", groupConcurrency);
+        ReflectionTestUtils.setField(service, "queueCapacity", 16);
+        ReflectionTestUtils.setField(service, "chunkSize", 100);
+        return service;
+    }
+
+    private void servePage(HttpExchange exchange) throws IOException {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(PAGE_DELAY_MS);
+            Matcher matcher = START_INDEX.matcher(exchange.getRequestURI().getRawQuery());
+            int startIndex = matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+            StringBuilder body = new StringBuilder("{\"totalItems\":" + TOTAL_ITEMS + ",\"items\":[");
+            for (int i = startIndex; i < Math.min(startIndex + GoogleBooksClient.PAGE_SIZE, TOTAL_ITEMS); i++) {
+                if (i > startIndex) {
+                    body.append(',');
+                }
+                body.append("{\"volumeInfo\":{\"title\":\"Book ").append(i)
+                        .append("\",\"language\":\"en\",\"printType\":\"BOOK\"}}");
+            }
+            respond(exchange, body.append("]}").toString().getBytes(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, byte[] bytes) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * A full result page with every field the API returns, or only the projected ones when the request asks for
+     * them with {@code fields=}. A quarter of the volumes are not in English and a fifth are magazines.
+     */
+    private static byte[] benchmarkPage(boolean projected) {
+        Random random = new Random(23);
+        StringBuilder json = new StringBuilder(projected ? "{" : "{\"kind\":\"books#volumes\",");
+        json.append("\"totalItems\":100000,\"items\":[");
+        for (int i = 0; i < GoogleBooksClient.PAGE_SIZE; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('{');
+            if (!projected) {
+                json.append("\"kind\":\"books#volume\",\"id\":\"v").append(i).append("\",\"etag\":\"e").append(i)
+                        .append("\",\"selfLink\":\"https://books.test/v1/volumes/v").append(i).append("\",");
+            }
+            json.append("\"volumeInfo\":{\"title\":\"Volume ").append(i)
+                    .append("\",\"authors\":[\"Author ").append(i).append("\",\"Editor\"],")
+                    .append("\"publisher\":\"Publisher\",\"publishedDate\":\"2019-05-0").append(1 + i % 9).append("\",")
+                    .append("\"industryIdentifiers\":[{\"type\":\"ISBN_13\",\"identifier\":\"978")
+                    .append(String.format("%010d", i)).append("\"}],")
+                    .append("\"pageCount\":").append(120 + i).append(',')
+                    .append("\"printType\":\"").append(random.nextInt(5) == 0 ? "MAGAZINE" : "BOOK").append("\",")
+                    .append("\"categories\":[\"Fiction\"],\"averageRating\":4.0,")
+                    .append("\"language\":\"").append(random.nextInt(4) == 0 ? "de" : "en").append('"');
+            if (!projected) {
+                json.append(",\"description\":\"").append("A long description of the volume. ".repeat(20)).append('"')
+                        .append(",\"imageLinks\":{\"smallThumbnail\":\"https://books.test/s").append(i)
+                        .append("\",\"thumbnail\":\"https://books.test/t").append(i).append("\"}")
+                        .append(",\"previewLink\":\"https://books.test/p").append(i).append('"');
+            }
+            json.append('}');
+            if (!projected) {
+                json.append(",\"saleInfo\":{\"country\":\"US\",\"saleability\":\"NOT_FOR_SALE\",\"isEbook\":false}")
+                        .append(",\"accessInfo\":{\"country\":\"US\",\"viewability\":\"PARTIAL\",\"embeddable\":true}");
+            }
+            json.append('}');
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
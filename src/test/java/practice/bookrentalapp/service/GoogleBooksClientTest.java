@@ -0,0 +1,205 @@
+package practice.bookrentalapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import practice.bookrentalapp.model.dto.request.BookSearchRequest.SearchGroup;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse;
+import practice.bookrentalapp.utils.CircuitBreaker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.queryParam;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class GoogleBooksClientTest {
+    private static final String PAGE = "{\"totalItems\":1,\"items\":[{\"volumeInfo\":"
+            + "{\"title\":\"Dune\",\"language\":\"en\",\"printType\":\"BOOK\"}}]}";
+
+    @TempDir
+    Path cacheDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MockRestServiceServer server;
+    private GoogleBooksPageCache pageCache;
+    private GoogleBooksClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        pageCache = new GoogleBooksPageCache(objectMapper, meterRegistry);
+        ReflectionTestUtils.setField(pageCache, "enabled", true);
+        ReflectionTestUtils.setField(pageCache, "directory", cacheDir);
+        ReflectionTestUtils.setField(pageCache, "ttl", Duration.ofDays(1));
+        ReflectionTestUtils.setField(pageCache, "maxSize", DataSize.ofMegabytes(1));
+        pageCache.init();
+        client = new GoogleBooksClient(restTemplate, pageCache, new GoogleBooksPageParser(objectMapper), meterRegistry,
+                4, 1_000, Duration.ofSeconds(1), 3, Duration.ofMillis(1), Duration.ofMillis(5), 3, Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(client, "apiKey", "secret-key");
+        ReflectionTestUtils.setField(client, "baseUrl", "https://books.test/v1");
+    }
+
+    @Test
+    void missGoesRemoteAndRepeatIsServedFromDisk() throws Exception {
+        server.expect(ExpectedCount.once(), requestTo(containsString("startIndex=0")))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(queryParam("key", "secret-key"))
+                .andRespond(withSuccess(PAGE, MediaType.APPLICATION_JSON));
+
+        GoogleBooksResponse remote = client.fetchPage(group("Herbert"), 0);
+        GoogleBooksResponse cached = client.fetchPage(group("HERBERT"), 0);
+
+        server.verify();
+        assertThat(remote.getItems()).extracting(item -> item.getVolumeInfo().getTitle()).containsExactly("Dune");
+        assertThat(cached).isEqualTo(remote);
+        assertThat(cacheCount("miss")).isEqualTo(1);
+        assertThat(cacheCount("hit")).isEqualTo(1);
+        // The API key never reaches the cache key or the stored page
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertThat(files).singleElement().satisfies(file -> assertThat(file.toString()).doesNotContain("secret-key"));
+        }
+    }
+
+    @Test
+    void expiredEntryIsFetchedAgain() throws Exception {
+        server.expect(ExpectedCount.twice(), requestTo(containsString("startIndex=40")))
+                .andRespond(withSuccess(PAGE, MediaType.APPLICATION_JSON));
+
+        client.fetchPage(group("Herbert"), 40);
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            Path file = files.findFirst().orElseThrow();
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        }
+        client.fetchPage(group("Herbert"), 40);
+
+        server.verify();
+        assertThat(cacheCount("miss")).isEqualTo(2);
+    }
+
+    @Test
+    void cacheOnlyModeNeverCallsTheApi() throws Exception {
+        ReflectionTestUtils.setField(pageCache, "cacheOnly", true);
+
+        assertThat(client.fetchPage(group("Herbert"), 0)).isNull();
+
+        server.verify();
+        assertThat(cacheCount("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void serverErrorsAreRetriedWithBackoff() throws Exception {
+        ReflectionTestUtils.setField(pageCache, "enabled", false);
+        server.expect(requestTo(containsString("startIndex=0")))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "0"));
+        server.expect(requestTo(containsString("startIndex=0")))
+                .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS));
+        server.expect(requestTo(containsString("startIndex=0")))
+                .andRespond(withSuccess(PAGE, MediaType.APPLICATION_JSON));
+
+        assertThat(client.fetchPage(group("Herbert"), 0).getItems()).hasSize(1);
+
+        server.verify();
+        assertThat(meterRegistry.get("google.books.retries").counter().count()).isEqualTo(2);
+        assertThat(breakerState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void malformedBodyIsNotRetriedOrCountedAgainstTheBreaker() throws Exception {
+        ReflectionTestUtils.setField(pageCache, "enabled", false);
+        server.expect(ExpectedCount.once(), requestTo(containsString("startIndex=0")))
+                .andRespond(withSuccess("{\"totalItems\": 1, \"items\": [{\"volumeInfo\": oops}]}", MediaType.APPLICATION_JSON));
+
+        assertThatThrownBy(() -> client.fetchPage(group("Herbert"), 0))
+                .isInstanceOf(GoogleBooksClient.MalformedResponseException.class);
+
+        server.verify();
+        assertThat(meterRegistry.get("google.books.retries").counter().count()).isZero();
+        assertThat(breakerState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void breakerOpensAfterRepeatedFailuresAndFailsFast() throws Exception {
+        ReflectionTestUtils.setField(pageCache, "enabled", false);
+        server.expect(ExpectedCount.times(3), requestTo(containsString("startIndex=0")))
+                .andRespond(withServerError());
+
+        assertThatThrownBy(() -> client.fetchPage(group("Herbert"), 0)).isInstanceOf(HttpServerErrorException.class);
+        assertThat(breakerState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> client.fetchPage(group("Herbert"), 0))
+                .isInstanceOf(RestClientException.class)
+                .hasMessageContaining("circuit breaker is open");
+
+        server.verify();
+        assertThat(meterRegistry.get("google.books.circuit-breaker.rejections").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void unexpectedExceptionDuringATrialReleasesIt() throws Exception {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer trialServer = MockRestServiceServer.bindTo(restTemplate).build();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GoogleBooksClient breakerClient = new GoogleBooksClient(restTemplate,
+                new GoogleBooksPageCache(objectMapper, registry), new GoogleBooksPageParser(objectMapper), registry,
+                4, 1_000, Duration.ofSeconds(1), 1, Duration.ofMillis(1), Duration.ofMillis(5), 1, Duration.ofMillis(20));
+        ReflectionTestUtils.setField(breakerClient, "baseUrl", "https://books.test/v1");
+        trialServer.expect(requestTo(containsString("startIndex=0"))).andRespond(withServerError());
+        trialServer.expect(requestTo(containsString("startIndex=0"))).andRespond(request -> {
+            throw new IllegalStateException("bug while handling the response");
+        });
+        trialServer.expect(requestTo(containsString("startIndex=0")))
+                .andRespond(withSuccess(PAGE, MediaType.APPLICATION_JSON));
+
+        assertThatThrownBy(() -> breakerClient.fetchPage(group("Herbert"), 0)).isInstanceOf(HttpServerErrorException.class);
+        Thread.sleep(40);
+        assertThatThrownBy(() -> breakerClient.fetchPage(group("Herbert"), 0)).isInstanceOf(IllegalStateException.class);
+
+        // The half-open trial was given back, so the next call is let through and closes the circuit
+        assertThat(breakerClient.fetchPage(group("Herbert"), 0).getItems()).hasSize(1);
+        trialServer.verify();
+        assertThat(registry.get("google.books.circuit-breaker.state").gauge().value())
+                .isEqualTo(CircuitBreaker.State.CLOSED.ordinal());
+    }
+
+    private CircuitBreaker.State breakerState() {
+        double state = meterRegistry.get("google.books.circuit-breaker.state").gauge().value();
+        return CircuitBreaker.State.values()[(int) state];
+    }
+
+    private double cacheCount(String result) {
+        return meterRegistry.get("google.books.cache.requests").tag("result", result).counter().count();
+    }
+
+    private static SearchGroup group(String author) {
+        SearchGroup group = new SearchGroup();
+        group.setAuthor(author);
+        return group;
+    }
+}
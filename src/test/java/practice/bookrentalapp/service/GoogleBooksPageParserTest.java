@@ -0,0 +1,101 @@
+package practice.bookrentalapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse;
+import practice.bookrentalapp.model.dto.response.GoogleBooksResponse.VolumeInfo;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GoogleBooksPageParserTest {
+    private static final int ITEMS = 20_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final GoogleBooksPageParser parser = new GoogleBooksPageParser(objectMapper);
+
+    @Test
+    void largePageMatchesFullDeserializationFilteredAfterwards() throws Exception {
+        byte[] page = fixture(new Random(7));
+
+        GoogleBooksResponse streamed = parser.parse(new ByteArrayInputStream(page));
+
+        GoogleBooksResponse full = objectMapper.copy()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValue(page, GoogleBooksResponse.class);
+        List<VolumeInfo> admitted = full.getItems().stream()
+                .map(GoogleBooksResponse.Item::getVolumeInfo)
+                .filter(volume -> volume != null
+                        && VolumeInfoConverter.isAdmitted(volume.getLanguage(), volume.getPrintType()))
+                .toList();
+        assertThat(streamed.getTotalItems()).isEqualTo(ITEMS);
+        assertThat(streamed.getItems()).extracting(GoogleBooksResponse.Item::getVolumeInfo).isEqualTo(admitted);
+        assertThat(streamed.getFilteredItems()).isEqualTo(ITEMS - admitted.size());
+        assertThat(admitted).isNotEmpty().hasSizeLessThan(ITEMS);
+    }
+
+    @Test
+    void missingItemsArrayMeansEndOfResults() throws Exception {
+        GoogleBooksResponse page = parse("{\"kind\":\"books#volumes\",\"totalItems\":120}");
+
+        assertThat(page.getTotalItems()).isEqualTo(120);
+        assertThat(page.getItems()).isNull();
+    }
+
+    @Test
+    void malformedJsonIsReportedAsAParseError() {
+        assertThatThrownBy(() -> parse("[]")).isInstanceOf(JsonProcessingException.class);
+        assertThatThrownBy(() -> parse("{\"items\":[{\"volumeInfo\":{\"title\":}}]}"))
+                .isInstanceOf(JsonProcessingException.class);
+    }
+
+    private GoogleBooksResponse parse(String json) throws Exception {
+        return parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * A page in the shape the API returns: admitted and rejected volumes, the language and print type at varying
+     * positions, nested fields the parser must skip, and items without a volumeInfo.
+     */
+    private static byte[] fixture(Random random) {
+        StringBuilder json = new StringBuilder("{\"kind\":\"books#volumes\",\"items\":[");
+        for (int i = 0; i < ITEMS; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"v").append(i).append("\",\"saleInfo\":{\"country\":\"US\",\"offers\":[{\"a\":1}]}");
+            if (i % 97 == 0) {
+                json.append('}');
+                continue;
+            }
+            String language = random.nextInt(4) == 0 ? "de" : "en";
+            String printType = random.nextInt(5) == 0 ? "MAGAZINE" : "BOOK";
+            String head = "\"language\":\"" + language + "\",\"printType\":\"" + printType + "\",";
+            json.append(",\"volumeInfo\":{");
+            if (i % 2 == 0) {
+                json.append(head);
+            }
+            json.append("\"title\":\"Title \\\"").append(i).append("\\\"\",")
+                    .append("\"authors\":[\"Author ").append(i % 300).append("\",\"Co Author\"],")
+                    .append("\"publishedDate\":\"20").append(10 + i % 15).append("-01-02\",")
+                    .append("\"industryIdentifiers\":[{\"type\":\"ISBN_13\",\"identifier\":\"978")
+                    .append(String.format("%010d", i)).append("\"}],")
+                    .append("\"imageLinks\":{\"thumbnail\":\"http://example.test/").append(i).append("\"},")
+                    .append("\"pageCount\":").append(100 + i % 400).append(',')
+                    .append("\"averageRating\":").append(i % 5 + 0.5).append(',');
+            if (i % 2 != 0) {
+                json.append(head);
+            }
+            json.append("\"categories\":[\"Fiction\"]}}");
+        }
+        json.append("],\"totalItems\":").append(ITEMS).append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,155 @@
+package practice.bookrentalapp.service;
+
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import practice.bookrentalapp.config.JpaConfig;
+import practice.bookrentalapp.model.entities.RefreshToken;
+import practice.bookrentalapp.model.entities.User;
+import practice.bookrentalapp.model.enums.Role;
+import practice.bookrentalapp.repositories.RefreshTokenRepository;
+import practice.bookrentalapp.repositories.UserRepository;
+import practice.bookrentalapp.utils.TokenDigest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Refresh token rotation against a real database, each call in its own committed transaction.
+ */
+@DataJpaTest
+@Import(JpaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenServiceTest {
+    private static final int CALLERS = 8;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private RefreshTokenService refreshTokenService;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository);
+        ReflectionTestUtils.setField(refreshTokenService, "refreshExpiration", Duration.ofDays(30));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void rotationExchangesEachTokenOnce() throws Exception {
+        User alice = userRepository.save(user("alice01"));
+        String first = refreshTokenService.issue(alice);
+
+        assertThat(consume(first).getId()).isEqualTo(alice.getId());
+        String second = refreshTokenService.issue(alice);
+
+        assertThat(token(first).isRevoked()).isTrue();
+        assertThat(token(second).isRevoked()).isFalse();
+        assertThat(token(second).getTokenHash()).isNotEqualTo(second);
+        assertThat(consume(second).getId()).isEqualTo(alice.getId());
+    }
+
+    @Test
+    void reuseAfterRotationRevokesEveryTokenOfTheUser() throws Exception {
+        User alice = userRepository.save(user("alice01"));
+        User bob = userRepository.save(user("bobby01"));
+        String stolen = refreshTokenService.issue(alice);
+        consume(stolen);
+        String rotated = refreshTokenService.issue(alice);
+        String other = refreshTokenService.issue(bob);
+
+        assertThatThrownBy(() -> consume(stolen)).isInstanceOf(BadRequestException.class);
+
+        assertThat(token(rotated).isRevoked()).isTrue();
+        assertThatThrownBy(() -> consume(rotated)).isInstanceOf(BadRequestException.class);
+        assertThat(token(other).isRevoked()).isFalse();
+    }
+
+    @Test
+    void concurrentRefreshesWithTheSameTokenClaimItOnce() throws Exception {
+        User alice = userRepository.save(user("alice01"));
+        String rawToken = refreshTokenService.issue(alice);
+
+        CyclicBarrier start = new CyclicBarrier(CALLERS);
+        List<Future<Boolean>> calls = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(CALLERS)) {
+            for (int i = 0; i < CALLERS; i++) {
+                calls.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        consume(rawToken);
+                        return true;
+                    } catch (BadRequestException e) {
+                        return false;
+                    }
+                }));
+            }
+            List<Boolean> succeeded = new ArrayList<>();
+            for (Future<Boolean> call : calls) {
+                succeeded.add(call.get());
+            }
+            assertThat(succeeded).containsOnlyOnce(true);
+        }
+        assertThat(token(rawToken).isRevoked()).isTrue();
+    }
+
+    /**
+     * Calls {@link RefreshTokenService#consume} in its own transaction. Like the {@code @Transactional} proxy, a
+     * {@link BadRequestException} still commits, so the revocations made before it are kept.
+     */
+    private User consume(String rawToken) throws BadRequestException {
+        Object result = transactionTemplate.execute(status -> {
+            try {
+                return refreshTokenService.consume(rawToken);
+            } catch (BadRequestException e) {
+                return e;
+            }
+        });
+        if (result instanceof BadRequestException e) {
+            throw e;
+        }
+        return (User) result;
+    }
+
+    private RefreshToken token(String rawToken) {
+        return refreshTokenRepository.findByTokenHashWithUser(TokenDigest.sha256(rawToken)).orElseThrow();
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setName(username);
+        user.setUsername(username);
+        user.setEmail(username + "@example.test");
+        user.setPassword("password-hash");
+        user.setRole(Role.ROLE_USER);
+        return user;
+    }
+}
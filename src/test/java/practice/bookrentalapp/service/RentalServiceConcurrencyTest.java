@@ -0,0 +1,178 @@
+package practice.bookrentalapp.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import practice.bookrentalapp.config.JpaConfig;
+import practice.bookrentalapp.model.dto.request.CreateRentalRequest;
+import practice.bookrentalapp.model.entities.Book;
+import practice.bookrentalapp.model.entities.User;
+import practice.bookrentalapp.model.enums.Role;
+import practice.bookrentalapp.repositories.BookRepository;
+import practice.bookrentalapp.repositories.RentalRepository;
+import practice.bookrentalapp.repositories.UserRepository;
+import practice.bookrentalapp.utils.EntityDtoMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Races {@link RentalService#createRental} from many threads, each call in its own transaction as it would run
+ * behind the service's transactional proxy.
+ */
+@DataJpaTest
+@Import(JpaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Slf4j
+class RentalServiceConcurrencyTest {
+    private static final int CALLERS = 16;
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private RentalRepository rentalRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private RentalService rentalService;
+    private Long userId;
+
+    private enum Outcome { RENTED, REFUSED }
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        rentalService = new RentalService(rentalRepository, mock(EntityDtoMapper.class), bookRepository,
+                mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(rentalService, "entityManager", entityManager);
+        User user = new User();
+        user.setName("Reader");
+        user.setUsername("reader1");
+        user.setEmail("reader1@example.test");
+        user.setPassword("password-hash");
+        user.setRole(Role.ROLE_USER);
+        userId = userRepository.save(user).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        rentalRepository.deleteAll();
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void hotTitleIsNeverLentBeyondItsCopies() throws Exception {
+        Long bookId = saveBook("Dune", 5);
+
+        List<Outcome> outcomes = race(CALLERS, List.of(bookId));
+
+        assertThat(outcomes.stream().filter(outcome -> outcome == Outcome.RENTED)).hasSize(5);
+        assertThat(copiesLent(bookId)).isEqualTo(5);
+        // Refused calls threw and rolled back, so they left no rental behind
+        assertThat(rentalRepository.count()).isEqualTo(5);
+    }
+
+    @Test
+    void shortfallOnOneBookRollsBackTheWholeRental() throws Exception {
+        Long plenty = saveBook("Ulysses", CALLERS);
+        Long scarce = saveBook("Walden", 3);
+
+        List<Outcome> outcomes = race(CALLERS, List.of(plenty, scarce));
+
+        assertThat(outcomes.stream().filter(outcome -> outcome == Outcome.RENTED)).hasSize(3);
+        assertThat(copiesLent(scarce)).isEqualTo(3);
+        // The copies reserved on the other book by refused calls were given back by the rollback
+        assertThat(copiesLent(plenty)).isEqualTo(3);
+        assertThat(rentalRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void hotTitleThroughputBenchmark() throws Exception {
+        int attempts = CALLERS * 25;
+        Long bookId = saveBook("Middlemarch", attempts / 2);
+
+        long start = System.nanoTime();
+        List<Outcome> outcomes = race(attempts, List.of(bookId));
+        long elapsed = System.nanoTime() - start;
+
+        long rented = outcomes.stream().filter(outcome -> outcome == Outcome.RENTED).count();
+        assertThat(rented).isEqualTo(attempts / 2);
+        assertThat(copiesLent(bookId)).isEqualTo(attempts / 2);
+        log.info("Hot title: {} createRental calls from {} threads in {} ms, {} rentals/s", attempts, CALLERS,
+                elapsed / 1_000_000, attempts * 1_000_000_000L / Math.max(elapsed, 1));
+    }
+
+    /**
+     * Makes {@code attempts} createRental calls for the given books from {@link #CALLERS} threads released together.
+     */
+    private List<Outcome> race(int attempts, List<Long> bookIds) throws Exception {
+        CreateRentalRequest request = new CreateRentalRequest();
+        request.setBookIds(bookIds);
+        request.setRentalDuration(14);
+        CyclicBarrier start = new CyclicBarrier(CALLERS);
+        List<Future<List<Outcome>>> callers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(CALLERS)) {
+            for (int caller = 0; caller < CALLERS; caller++) {
+                int calls = attempts / CALLERS + (caller < attempts % CALLERS ? 1 : 0);
+                callers.add(executor.submit(() -> {
+                    start.await();
+                    List<Outcome> outcomes = new ArrayList<>();
+                    for (int i = 0; i < calls; i++) {
+                        outcomes.add(rent(request));
+                    }
+                    return outcomes;
+                }));
+            }
+            List<Outcome> outcomes = new ArrayList<>();
+            for (Future<List<Outcome>> caller : callers) {
+                outcomes.addAll(caller.get());
+            }
+            return outcomes;
+        }
+    }
+
+    private Outcome rent(CreateRentalRequest request) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> rentalService.createRental(request, userId));
+            return Outcome.RENTED;
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessageContaining("No available copies");
+            return Outcome.REFUSED;
+        }
+    }
+
+    private Long saveBook(String title, int totalCopies) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setTotalCopies(totalCopies);
+        return bookRepository.save(book).getId();
+    }
+
+    private int copiesLent(Long bookId) {
+        return (Integer) bookRepository.findInventoryByIds(List.of(bookId)).get(0)[2];
+    }
+}
@@ -0,0 +1,108 @@
+package practice.bookrentalapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import practice.bookrentalapp.config.JpaConfig;
+import practice.bookrentalapp.model.dto.request.UpdateUserProfileRequest;
+import practice.bookrentalapp.model.entities.User;
+import practice.bookrentalapp.model.enums.Role;
+import practice.bookrentalapp.repositories.UserRepository;
+import practice.bookrentalapp.security.CustomUserDetailsService;
+import practice.bookrentalapp.security.SecurityVersionRegistry;
+import practice.bookrentalapp.utils.EntityDtoMapper;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Security version changes against a real database, each call in its own committed or rolled back transaction.
+ */
+@DataJpaTest
+@Import(JpaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserServiceTest {
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private SecurityVersionRegistry registry;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        registry = new SecurityVersionRegistry(userRepository, 100, Duration.ofMinutes(5));
+        userService = new UserService(userRepository, mock(EntityDtoMapper.class), registry,
+                mock(CustomUserDetailsService.class));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void failedIdentityChangeKeepsExistingTokensValid() {
+        userRepository.save(user("alice01"));
+        User bob = userRepository.save(user("bobby01"));
+        assertThat(registry.isCurrent(bob.getId(), 0)).isTrue();
+
+        UpdateUserProfileRequest request = new UpdateUserProfileRequest();
+        request.setNewUsername("alice01");
+        // The duplicate username is only detected when the transaction flushes on commit
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(
+                status -> userService.updateUser(bob.getId(), request)));
+
+        assertThat(userRepository.findSecurityVersionById(bob.getId())).contains(0);
+        assertThat(registry.isCurrent(bob.getId(), 0)).isTrue();
+    }
+
+    @Test
+    void committedPromotionRejectsOlderTokens() {
+        User carol = userRepository.save(user("carol01"));
+        assertThat(registry.isCurrent(carol.getId(), 0)).isTrue();
+
+        transactionTemplate.executeWithoutResult(status -> userService.promoteToAdmin(carol.getId()));
+
+        assertThat(userRepository.findSecurityVersionById(carol.getId())).contains(1);
+        assertThat(registry.isCurrent(carol.getId(), 0)).isFalse();
+        assertThat(registry.isCurrent(carol.getId(), 1)).isTrue();
+    }
+
+    @Test
+    void rolledBackPromotionLeavesTheVersionAlone() {
+        User dave = userRepository.save(user("david01"));
+        assertThat(registry.isCurrent(dave.getId(), 0)).isTrue();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            userService.promoteToAdmin(dave.getId());
+            status.setRollbackOnly();
+        });
+
+        assertThat(userRepository.findSecurityVersionById(dave.getId())).contains(0);
+        assertThat(registry.isCurrent(dave.getId(), 0)).isTrue();
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setName(username);
+        user.setUsername(username);
+        user.setEmail(username + "@example.test");
+        user.setPassword("password-hash");
+        user.setRole(Role.ROLE_USER);
+        return user;
+    }
+}
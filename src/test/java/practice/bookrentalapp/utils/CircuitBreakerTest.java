@@ -0,0 +1,81 @@
+package practice.bookrentalapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailuresOnly() {
+        CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofMinutes(1));
+
+        fail(breaker);
+        fail(breaker);
+        succeed(breaker);
+        fail(breaker);
+        fail(breaker);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        fail(breaker);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void halfOpenLetsOneTrialThroughAndClosesOnSuccess() throws InterruptedException {
+        CircuitBreaker breaker = open(Duration.ofMillis(20));
+        Thread.sleep(40);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        breaker.recordSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void failedTrialReopensTheCircuit() throws InterruptedException {
+        CircuitBreaker breaker = open(Duration.ofMillis(20));
+        Thread.sleep(40);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.recordFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void releasedTrialCanBeTakenAgain() throws InterruptedException {
+        CircuitBreaker breaker = open(Duration.ofMillis(20));
+        Thread.sleep(40);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.releasePermission();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    private static CircuitBreaker open(Duration openDuration) {
+        CircuitBreaker breaker = new CircuitBreaker(1, openDuration);
+        fail(breaker);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        return breaker;
+    }
+
+    private static void fail(CircuitBreaker breaker) {
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.recordFailure();
+    }
+
+    private static void succeed(CircuitBreaker breaker) {
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.recordSuccess();
+    }
+}
@@ -0,0 +1,61 @@
+package practice.bookrentalapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongIntHashMapTest {
+
+    @Test
+    void matchesAHashMapThroughManyResizes() {
+        Random random = new Random(11);
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            long key = 1 + random.nextInt(20_000);
+            int delta = 1 + random.nextInt(3);
+            assertThat(map.addTo(key, delta)).isEqualTo(expected.merge(key, delta, Integer::sum));
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+        assertThat(map.keys()).hasSize(expected.size()).doesNotHaveDuplicates();
+        Map<Long, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertThat(visited).isEqualTo(expected);
+    }
+
+    @Test
+    void keysSharingASlotAreFoundByProbing() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        // Multiples of a large power of two collide often in a small table; none may shadow another
+        for (long i = 1; i <= 64; i++) {
+            map.addTo(i << 40, (int) i);
+        }
+
+        for (long i = 1; i <= 64; i++) {
+            assertThat(map.containsKey(i << 40)).isTrue();
+            assertThat(map.get(i << 40)).isEqualTo((int) i);
+        }
+        assertThat(map.containsKey(65L << 40)).isFalse();
+        assertThat(map.get(65L << 40)).isZero();
+    }
+
+    @Test
+    void nonPositiveKeysAreRejectedEverywhere() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.addTo(1, 1);
+
+        for (long key : new long[]{0, -1}) {
+            assertThatThrownBy(() -> map.containsKey(key)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> map.get(key)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> map.addTo(key, 1)).isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(map.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,59 @@
+package practice.bookrentalapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTest {
+
+    @Test
+    void allowsABurstUpToCapacityThenRefuses() {
+        TokenBucket bucket = new TokenBucket(3, 1, Duration.ofHours(1));
+
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+        assertThat(bucket.availableTokens()).isLessThan(1);
+    }
+
+    @Test
+    void refillsAtTheConfiguredRateButNotBeyondCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(2, 100, Duration.ofSeconds(1));
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+
+        Thread.sleep(50);
+
+        assertThat(bucket.availableTokens()).isEqualTo(2.0);
+        assertThat(bucket.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void acquireWaitsForTheNextTokenInReservationOrder() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 20, Duration.ofSeconds(1));
+
+        assertThat(bucket.acquire()).isZero();
+        long start = System.nanoTime();
+        long firstWait = bucket.acquire();
+        long secondWait = bucket.acquire();
+        long elapsed = System.nanoTime() - start;
+
+        // One token every 50 ms: the second waiter queues behind the first
+        assertThat(firstWait).isBetween(TimeUnit.MILLISECONDS.toNanos(30), TimeUnit.MILLISECONDS.toNanos(60));
+        assertThat(secondWait).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(30));
+        assertThat(elapsed).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(90));
+    }
+
+    @Test
+    void rejectsNonPositiveSettings() {
+        assertThatThrownBy(() -> new TokenBucket(0, 1, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(1, 1, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}